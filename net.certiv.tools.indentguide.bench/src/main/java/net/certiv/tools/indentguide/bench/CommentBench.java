@@ -0,0 +1,93 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.eclipse.jface.text.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.certiv.tools.indentguide.bench.Inputs.Shape;
+import net.certiv.tools.indentguide.model.IndentModel;
+import net.certiv.tools.indentguide.syntax.BlockCommentScanner;
+
+/**
+ * Comment line recognition over all lines of an input: the block comment scanner, and, as the
+ * baseline, the regular expression formerly applied by {@code Line.COMMENT}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommentBench {
+
+	private static final Pattern COMMENT = Pattern.compile( //
+			"^(?:\\h*(?:" // $NON-NLS-1$
+					+ "/\\*.*|" // $NON-NLS-1$ -> ^'/*'.*$
+					+ " \\*|" // $NON-NLS-1$ -> ^' *'$
+					+ " \\* .*|" // $NON-NLS-1$ -> ^' * '.*$
+					+ " \\*/.*|" // $NON-NLS-1$ -> ^' */'.*$
+					+ " (?:\\*.*)?\\*/" // $NON-NLS-1$ -> ^' *'.*'*/'.*$
+					+ "))$" // $NON-NLS-1$
+	);
+
+	@Param({ "TABS", "SPACES", "LONG" })
+	public Shape shape;
+
+	@Param({ "1000" })
+	public int lines;
+
+	private String[] txt;
+	// character position of the last tab stop per line
+	private int[] from;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		txt = Inputs.lines(shape, lines);
+		from = new int[lines];
+
+		IndentModel model = IndentModel.connect(new Document(Inputs.text(shape, lines)), Inputs.TABWIDTH);
+		for (int line = 0; line < lines; line++) {
+			from[line] = Math.max(0, model.stopPos(line, model.stops(line) - 1));
+		}
+		IndentModel.disconnect(model);
+	}
+
+	@Benchmark
+	public int scanner() {
+		int cnt = 0;
+		for (int line = 0; line < lines; line++) {
+			if (BlockCommentScanner.INSTANCE.isComment(txt[line], from[line])) cnt++;
+		}
+		return cnt;
+	}
+
+	@Benchmark
+	public int regex() {
+		int cnt = 0;
+		for (int line = 0; line < lines; line++) {
+			if (COMMENT.matcher(txt[line].substring(from[line])).matches()) cnt++;
+		}
+		return cnt;
+	}
+}
@@ -0,0 +1,89 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jface.text.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.certiv.tools.indentguide.bench.Inputs.Shape;
+import net.certiv.tools.indentguide.model.IndentModel;
+
+/**
+ * Guide derivation for one screen of lines, as performed by {@code GuidePainter.drawLineRange}
+ * less the widget queries: the line state lookups and the blank line guide inference from the
+ * surrounding non-blank lines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GuideBench {
+
+	private static final int SCREEN = 60;
+
+	@Param({ "TABS", "SPACES", "DEEP", "BLANKS" })
+	public Shape shape;
+
+	@Param({ "10000" })
+	public int lines;
+
+	private IndentModel model;
+	private int top;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		model = IndentModel.connect(new Document(Inputs.text(shape, lines)), Inputs.TABWIDTH);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		IndentModel.disconnect(model);
+	}
+
+	@Benchmark
+	public int screen() {
+		// scroll through the document, one screen per call
+		top = (top + SCREEN) % (lines - SCREEN);
+
+		int sum = 0;
+		for (int line = top; line < top + SCREEN; line++) {
+			boolean blank = model.isBlank(line);
+			boolean comment = model.isComment(line);
+			int prevNb = model.prevNonblank(line);
+			int prevEnd = prevNb < 0 ? 0 : model.endStop(prevNb);
+			int tabs = model.stops(line);
+
+			if (blank) {
+				int nextNb = model.nextNonblank(line);
+				int prevTabs = prevNb < 0 ? 1 : model.stops(prevNb);
+				int nextTabs = nextNb < 0 ? 1 : model.stops(nextNb);
+				tabs = nextTabs < prevTabs && prevTabs > 1 ? prevTabs - 1 : prevTabs;
+			}
+
+			sum += tabs + prevEnd + (comment ? 1 : 0);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,94 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.bench;
+
+/** Synthetic benchmark inputs, generated deterministically by shape and line count. */
+public final class Inputs {
+
+	/** Input shapes. */
+	public enum Shape {
+		/** Tab indented code, moderately nested, with block comments. */
+		TABS,
+		/** Space indented code, moderately nested, with block comments. */
+		SPACES,
+		/** Tab indented code, deeply nested. */
+		DEEP,
+		/** Tab indented code separated by long runs of blank lines. */
+		BLANKS,
+		/** Tab indented code of long lines. */
+		LONG;
+	}
+
+	public static final int TABWIDTH = 4;
+
+	private static final int DEPTH = 6;
+	private static final int DEEP_DEPTH = 40;
+	private static final int BLANK_RUN = 200;
+	private static final int LONG_LENGTH = 2000;
+
+	private Inputs() {}
+
+	/**
+	 * Returns the text of the given shape.
+	 *
+	 * @param shape the input shape
+	 * @param lines the number of lines
+	 * @return the text, lines delimited by {@code LF}
+	 */
+	public static String text(Shape shape, int lines) {
+		StringBuilder sb = new StringBuilder(lines * 32);
+		for (String line : lines(shape, lines)) {
+			sb.append(line).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the lines of the given shape.
+	 *
+	 * @param shape the input shape
+	 * @param lines the number of lines
+	 * @return the lines, excluding line delimiters
+	 */
+	public static String[] lines(Shape shape, int lines) {
+		String[] txt = new String[lines];
+		String body = shape == Shape.LONG ? "x = y + z; ".repeat(LONG_LENGTH / 11) : "x = y + z;"; //$NON-NLS-1$ //$NON-NLS-2$
+		int max = shape == Shape.DEEP ? DEEP_DEPTH : DEPTH;
+
+		for (int idx = 0; idx < lines; idx++) {
+			if (shape == Shape.BLANKS && (idx / BLANK_RUN) % 2 == 1) {
+				txt[idx] = ""; //$NON-NLS-1$
+				continue;
+			}
+
+			// triangular nesting: 0, 1, .. max, .. 1, 0, ..
+			int phase = idx % (2 * max);
+			int depth = phase < max ? phase : 2 * max - phase;
+			String lead = shape == Shape.SPACES ? " ".repeat(depth * TABWIDTH) : "\t".repeat(depth); //$NON-NLS-1$ //$NON-NLS-2$
+
+			switch (idx % 16) {
+				case 5:
+					txt[idx] = lead + "/*"; //$NON-NLS-1$
+					break;
+				case 6:
+					txt[idx] = lead + " * comment"; //$NON-NLS-1$
+					break;
+				case 7:
+					txt[idx] = lead + " */"; //$NON-NLS-1$
+					break;
+				case 11:
+					txt[idx] = ""; //$NON-NLS-1$
+					break;
+				default:
+					txt[idx] = lead + body;
+			}
+		}
+		return txt;
+	}
+}
@@ -0,0 +1,45 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks, accepting the standard JMH command line options. Results are written as
+ * JSON to {@code jmh-result.json} unless a result format or file is given.
+ */
+public final class Main {
+
+	private static final String RESULT = "jmh-result.json"; //$NON-NLS-1$
+
+	private Main() {}
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if (cmd.shouldHelp()) {
+			cmd.showHelp();
+			return;
+		}
+
+		ChainedOptionsBuilder opts = new OptionsBuilder().parent(cmd);
+		if (!cmd.getResultFormat().hasValue()) opts.resultFormat(ResultFormatType.JSON);
+		if (!cmd.getResult().hasValue()) opts.result(RESULT);
+
+		Runner runner = new Runner(opts.build());
+		if (cmd.shouldList()) {
+			runner.list();
+		} else {
+			runner.run();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.certiv.tools.indentguide.bench.Inputs.Shape;
+import net.certiv.tools.indentguide.model.IndentModel;
+
+/**
+ * Indent model line analysis: a full analysis of all lines, the successor of the per-line
+ * {@code Line.process()}, and the incremental re-analysis of a single line edit.
+ * <p>
+ * Line counts are kept below {@link IndentModel#ASYNC_LINES}, where the full analysis runs
+ * synchronously.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBench {
+
+	@Param({ "TABS", "SPACES", "DEEP", "BLANKS", "LONG" })
+	public Shape shape;
+
+	@Param({ "10000" })
+	public int lines;
+
+	private IDocument doc;
+	private IndentModel model;
+	private int offset;
+
+	@Setup(Level.Trial)
+	public void setup() throws BadLocationException {
+		doc = new Document(Inputs.text(shape, lines));
+		model = IndentModel.connect(doc, Inputs.TABWIDTH);
+		offset = doc.getLineOffset(lines / 2);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		IndentModel.disconnect(model);
+	}
+
+	@Benchmark
+	public int rebuild() {
+		model.rebuild();
+		return model.lineCount();
+	}
+
+	@Benchmark
+	public int editLine() throws BadLocationException {
+		doc.replace(offset, 0, "\t"); //$NON-NLS-1$
+		doc.replace(offset, 1, ""); //$NON-NLS-1$
+		return model.width(lines / 2);
+	}
+
+	@Benchmark
+	public int splitLine() throws BadLocationException {
+		doc.replace(offset, 0, "\n"); //$NON-NLS-1$
+		doc.replace(offset, 1, ""); //$NON-NLS-1$
+		return model.lineCount();
+	}
+}
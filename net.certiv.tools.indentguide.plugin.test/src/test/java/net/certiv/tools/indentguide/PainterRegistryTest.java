@@ -0,0 +1,80 @@
+package net.certiv.tools.indentguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.source.SourceViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.widgets.Event;
+import org.junit.jupiter.api.Test;
+
+import net.certiv.tools.indentguide.PainterRegistry.Entry;
+import net.certiv.tools.indentguide.metrics.PaintMetrics;
+import net.certiv.tools.indentguide.model.IndentModel;
+import net.certiv.tools.indentguide.painter.GuidePainter;
+import net.certiv.tools.indentguide.painter.TestBase;
+
+class PainterRegistryTest extends TestBase {
+
+	@Test
+	void testReleaseDisposesPainter() {
+		SourceViewer viewer = new SourceViewer(shell, null, SWT.NONE);
+		viewer.setDocument(new Document("class A {\n\tint a;\n\tvoid b() {\n\t\treturn;\n\t}\n}\n"));
+		shell.setSize(400, 400);
+		shell.layout();
+
+		int models = IndentModel.modelCount();
+		int painters = PaintMetrics.getDefault().getPainters();
+
+		PainterRegistry registry = new PainterRegistry();
+		Entry entry = registry.add(null, null, null, viewer);
+		GuidePainter painter = new GuidePainter(viewer);
+		entry.install(painter);
+		painter.paint(GuidePainter.CONFIGURATION);
+		painter.paintControl(paintEvent(viewer));
+
+		assertEquals(models + 1, IndentModel.modelCount());
+		assertEquals(painters + 1, PaintMetrics.getDefault().getPainters());
+
+		// close the editor
+		List<Entry> removed = registry.remove(null);
+		assertEquals(1, removed.size());
+		removed.forEach(Entry::uninstall);
+
+		assertNull(entry.painter());
+		assertEquals(0, registry.size());
+		assertEquals(models, IndentModel.modelCount());
+		assertEquals(painters, PaintMetrics.getDefault().getPainters());
+
+		painter.dispose(); // repeated disposal is harmless
+		assertEquals(painters, PaintMetrics.getDefault().getPainters());
+	}
+
+	@Test
+	void testRemoveRejected() {
+		PainterRegistry registry = new PainterRegistry();
+		registry.add(null, null, null, null).reject();
+		Entry entry = registry.add(null, null, null, new SourceViewer(shell, null, SWT.NONE));
+		assertEquals(2, registry.size());
+
+		// content type exclusions changed
+		registry.removeRejected();
+		assertEquals(1, registry.size());
+		assertEquals(entry, registry.entries().iterator().next());
+	}
+
+	private PaintEvent paintEvent(SourceViewer viewer) {
+		Event e = new Event();
+		e.widget = viewer.getTextWidget();
+		e.gc = gc;
+		e.x = 0;
+		e.y = 0;
+		e.width = 400;
+		e.height = 400;
+		return new PaintEvent(e);
+	}
+}
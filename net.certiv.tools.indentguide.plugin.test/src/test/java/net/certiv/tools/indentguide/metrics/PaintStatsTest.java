@@ -0,0 +1,44 @@
+package net.certiv.tools.indentguide.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class PaintStatsTest {
+
+	@Test
+	void testRecord() {
+		PaintStats stats = new PaintStats("test");
+		for (int idx = 0; idx < 98; idx++) {
+			stats.record(10_000, 40, 120, 40); // 10us
+		}
+		stats.record(5_000_000, 40, 120, 40); // 5ms
+		stats.record(5_000_000, 40, 120, 40);
+
+		assertEquals(100, stats.paints(), "Paints");
+		assertEquals(4000, stats.lines(), "Lines");
+		assertEquals(12000, stats.stops(), "Stops");
+		assertEquals(4000, stats.lookups(), "Lookups");
+
+		// bucket upper bounds: 16384ns, 8388608ns
+		assertEquals(16, stats.percentile(50), "P50");
+		assertEquals(8388, stats.percentile(99), "P99");
+
+		stats.reset();
+		assertEquals(0, stats.paints(), "Paints");
+		assertEquals(0, stats.percentile(50), "P50");
+	}
+
+	@Test
+	void testAggregate() {
+		PaintMetrics metrics = PaintMetrics.getDefault();
+		PaintStats stats = new PaintStats("test");
+		metrics.add(stats);
+		try {
+			stats.record(10_000, 40, 120, 40);
+			assertEquals(1, metrics.getEditors().stream().filter(e -> e.getName().equals("test")).count(), "Editors");
+		} finally {
+			metrics.remove(stats);
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package net.certiv.tools.indentguide.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import net.certiv.tools.indentguide.syntax.BlockCommentScanner;
+
+class IndentModelTest {
+
+	private static final int TABWIDTH = 4;
+	private static final String TEXT = "class A {\n" //
+			+ "\tint a;\n" //
+			+ "\n" //
+			+ "\t/*\n" //
+			+ "\t * doc\n" //
+			+ "\t */\n" //
+			+ "\tvoid b() {\n" //
+			+ "        c();\n" //
+			+ "\t}\n" //
+			+ "}\n";
+
+	private IndentModel model;
+
+	@AfterEach
+	void tearDown() {
+		IndentModel.disconnect(model);
+	}
+
+	@Test
+	void testBuild() {
+		IDocument doc = new Document(TEXT);
+		model = IndentModel.connect(doc, TABWIDTH);
+
+		assertEquals(doc.getNumberOfLines(), model.lineCount(), "Line count");
+
+		assertEquals(0, model.width(0), "Width");
+		assertEquals(1, model.stops(0), "Stops");
+		assertEquals(4, model.width(1), "Width");
+		assertEquals(2, model.stops(1), "Stops");
+		assertEquals(8, model.width(7), "Width");
+		assertEquals(3, model.stops(7), "Stops");
+
+		assertTrue(model.isBlank(2), "Blank");
+		assertFalse(model.isBlank(1), "Blank");
+		assertTrue(model.isComment(4), "Comment");
+		assertTrue(model.isComment(5), "Comment");
+		assertFalse(model.isComment(6), "Comment");
+
+		assertEquals(1, model.prevNonblank(2), "Prev non-blank");
+		assertEquals(3, model.nextNonblank(2), "Next non-blank");
+		assertEquals(-1, model.prevNonblank(0), "Prev non-blank");
+	}
+
+	@Test
+	void testStopPos() {
+		IDocument doc = new Document("\t\tx\n        x\n  \t  \tx\n");
+		model = IndentModel.connect(doc, TABWIDTH);
+
+		assertEquals(2, model.stopPos(0, 2), "Tabs");
+		assertEquals(8, model.stopPos(1, 2), "Spaces");
+		assertEquals(3, model.stopPos(2, 1), "Mixed");
+		assertEquals(6, model.stopPos(2, 2), "Mixed");
+	}
+
+	@Test
+	void testEdits() throws BadLocationException {
+		IDocument doc = new Document(TEXT);
+		model = IndentModel.connect(doc, TABWIDTH);
+
+		doc.replace(doc.getLineOffset(1), 0, "\t"); // indent
+		verify(doc);
+
+		doc.replace(doc.getLineOffset(2), 0, "\n\n\t\tx\n"); // insert lines
+		verify(doc);
+
+		doc.replace(doc.getLineOffset(3), doc.getLineLength(3) + doc.getLineLength(4), ""); // delete lines
+		verify(doc);
+
+		doc.replace(doc.getLineOffset(6) + 1, 3, "x"); // join comment lines
+		verify(doc);
+
+		doc.set("\tx\n"); // replace all
+		verify(doc);
+	}
+
+	@Test
+	void testTabWidth() {
+		IDocument doc = new Document(TEXT);
+		model = IndentModel.connect(doc, TABWIDTH);
+
+		model.setTabWidth(2);
+		assertEquals(5, model.stops(7), "Stops");
+		assertEquals(8, model.endStop(7), "End stop");
+	}
+
+	@Test
+	void testBlankRuns() throws BadLocationException {
+		IDocument doc = new Document("a\n" + "\n".repeat(5000) + "\tb\n" + "\n".repeat(5000));
+		model = IndentModel.connect(doc, TABWIDTH);
+
+		assertEquals(2, model.blanks().runs(), "Runs");
+		assertEquals(0, model.prevNonblank(4000), "Prev non-blank");
+		assertEquals(5001, model.nextNonblank(1), "Next non-blank");
+		assertEquals(-1, model.nextNonblank(5001), "Next non-blank");
+
+		doc.replace(doc.getLineOffset(2500), 0, "c"); // split the first run
+		assertEquals(3, model.blanks().runs(), "Runs");
+		assertEquals(2500, model.prevNonblank(4000), "Prev non-blank");
+		assertEquals(2500, model.nextNonblank(1), "Next non-blank");
+
+		doc.replace(doc.getLineOffset(2500), 1, ""); // rejoin
+		assertEquals(2, model.blanks().runs(), "Runs");
+		assertEquals(0, model.prevNonblank(4000), "Prev non-blank");
+		verify(doc);
+	}
+
+	@Test
+	void testBlocks() throws BadLocationException {
+		IDocument doc = new Document(TEXT);
+		model = IndentModel.connect(doc, TABWIDTH);
+		BlockIndex blocks = model.blocks();
+
+		assertEquals(2, blocks.depths(), "Depths");
+		assertEquals(1, model.depth(2), "Blank line depth");
+		int idx = blocks.find(1, 2);
+		assertEquals(1, blocks.blockBeg(1, idx), "Block begin");
+		assertEquals(8, blocks.blockEnd(1, idx), "Block end");
+		idx = blocks.find(2, 7);
+		assertEquals(7, blocks.blockBeg(2, idx), "Block begin");
+		assertEquals(7, blocks.blockEnd(2, idx), "Block end");
+		assertEquals(-1, blocks.find(1, 9), "No block");
+
+		Random rnd = new Random(7);
+		String[] ins = { "\t", "\n", "\tx\n", "\n\t\tx", "x", "\n\n" };
+		for (int cnt = 0; cnt < 500; cnt++) {
+			int len = doc.getLength();
+			int offset = rnd.nextInt(len + 1);
+			int del = rnd.nextInt(3) == 0 ? Math.min(rnd.nextInt(8), len - offset) : 0;
+			doc.replace(offset, del, ins[rnd.nextInt(ins.length)]);
+		}
+		verify(doc);
+	}
+
+	@Test
+	void testDeepBlockEdits() throws BadLocationException {
+		StringBuilder sb = new StringBuilder("class A {\n");
+		for (int idx = 0; idx < 500; idx++) {
+			sb.append("\tvoid m").append(idx).append("() {\n") //
+					.append("\t\tif (x) {\n") //
+					.append("\t\t\ty();\n") //
+					.append("\t\t}\n") //
+					.append("\t}\n\n");
+		}
+		sb.append("}\n");
+		IDocument doc = new Document(sb.toString());
+		model = IndentModel.connect(doc, TABWIDTH);
+
+		int line = 1 + 250 * 6 + 2; // statement deep within one method of the class body
+		doc.replace(doc.getLineOffset(line), 0, "\t");
+		assertTrue(model.blocks().rescanned() < 10, "Re-derivation bounded by the enclosing block");
+		verify(doc);
+
+		doc.replace(doc.getLineOffset(line), 1, "");
+		doc.replace(doc.getLineOffset(line), 0, "\t\t\tz();\n\t\t\tz();\n");
+		assertTrue(model.blocks().rescanned() < 10, "Re-derivation bounded by the enclosing block");
+		verify(doc);
+
+		// a change of a boundary widens the re-derivation
+		doc.replace(doc.getLineOffset(line), 0, "}\n");
+		verify(doc);
+	}
+
+	@Test
+	void testSnapshot() {
+		IDocument doc = new Document(TEXT.replace("\t}\n", "\t}\r\n").replace("{\n", "{\r"));
+		model = IndentModel.connect(doc, TABWIDTH);
+
+		IndentSnapshot snap = IndentSnapshot.analyse(doc.get(), 1, TABWIDTH, model.scanner(),
+				new NullProgressMonitor());
+
+		assertEquals(model.lineCount(), snap.lineCount(), "Line count");
+		for (int line = 0; line < model.lineCount(); line++) {
+			assertEquals(model.width(line), snap.width(line), "Width @" + line);
+			assertEquals(model.stops(line), snap.stops(line), "Stops @" + line);
+			assertEquals(model.flags(line), snap.flags(line), "Flags @" + line);
+		}
+	}
+
+	@Test
+	void testSeed() throws BadLocationException {
+		IDocument doc = new Document(TEXT);
+		long stamp = ((IDocumentExtension4) doc).getModificationStamp();
+
+		// distinguishable from a fresh analysis
+		String text = TEXT.replace("\tint a;", "\t\tint a;");
+		IndentSnapshot snap = IndentSnapshot.analyse(text, stamp, TABWIDTH, BlockCommentScanner.INSTANCE,
+				new NullProgressMonitor());
+		IndentModel.seed(doc, snap);
+		assertTrue(IndentModel.isKnown(doc), "Known");
+
+		model = IndentModel.connect(doc, TABWIDTH, BlockCommentScanner.INSTANCE);
+		assertEquals(3, model.stops(1), "Seeded stops");
+		IndentModel.disconnect(model);
+
+		// stale seed not adopted
+		IndentModel.seed(doc, snap);
+		doc.replace(0, 0, "x");
+		model = IndentModel.connect(doc, TABWIDTH, BlockCommentScanner.INSTANCE);
+		assertEquals(2, model.stops(1), "Analysed stops");
+	}
+
+	@Test
+	void testDamage() throws BadLocationException {
+		IDocument doc = new Document(TEXT);
+		model = IndentModel.connect(doc, TABWIDTH);
+		int[] dmg = { -1, -1 };
+		model.addModelListener((beg, end, delta) -> {
+			dmg[0] = beg;
+			dmg[1] = end;
+		});
+
+		doc.replace(doc.getLineOffset(1) + 3, 0, "x"); // mid-line
+		assertEquals(-1, dmg[0], "No damage");
+
+		doc.replace(doc.getLineOffset(3), 0, "\t"); // indent below blank line
+		assertEquals(2, dmg[0], "Damage begin");
+		assertEquals(4, dmg[1], "Damage end");
+	}
+
+	/** Verifies the incrementally updated model against a freshly built model. */
+	private void verify(IDocument doc) {
+		IndentModel fresh = IndentModel.connect(new Document(doc.get()), TABWIDTH);
+		try {
+			assertEquals(fresh.lineCount(), model.lineCount(), "Line count");
+			for (int line = 0; line < fresh.lineCount(); line++) {
+				assertEquals(fresh.width(line), model.width(line), "Width @" + line);
+				assertEquals(fresh.stops(line), model.stops(line), "Stops @" + line);
+				assertEquals(fresh.flags(line), model.flags(line), "Flags @" + line);
+			}
+
+			BlockIndex exp = fresh.blocks();
+			BlockIndex act = model.blocks();
+			assertEquals(exp.depths(), act.depths(), "Block depths");
+			for (int depth = 1; depth <= exp.depths(); depth++) {
+				assertEquals(exp.blocks(depth), act.blocks(depth), "Blocks @" + depth);
+				for (int idx = 0; idx < exp.blocks(depth); idx++) {
+					assertEquals(exp.blockBeg(depth, idx), act.blockBeg(depth, idx), "Block begin @" + depth);
+					assertEquals(exp.blockEnd(depth, idx), act.blockEnd(depth, idx), "Block end @" + depth);
+				}
+			}
+		} finally {
+			IndentModel.disconnect(fresh);
+		}
+	}
+}
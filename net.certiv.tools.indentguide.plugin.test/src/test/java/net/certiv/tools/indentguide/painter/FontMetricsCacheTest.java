@@ -0,0 +1,54 @@
+package net.certiv.tools.indentguide.painter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.FontData;
+import org.junit.jupiter.api.Test;
+
+class FontMetricsCacheTest extends TestBase {
+
+	private static final int TABWIDTH = 4;
+
+	@Test
+	void testMonospaceOffsets() {
+		FontMetricsCache metrics = new FontMetricsCache(widget);
+		for (String name : fontnames) {
+			Font font = new Font(widget.getDisplay(), new FontData(name, 11, SWT.NORMAL));
+			widget.setFont(font);
+			widget.setTabs(TABWIDTH);
+			widget.setText("\t\t\tx");
+
+			assertTrue(metrics.validate(gc, TABWIDTH), "Refresh on font change");
+			assertFalse(metrics.validate(gc, TABWIDTH), "No refresh");
+
+			if (metrics.isMonospace()) {
+				int base = widget.getLocationAtOffset(0).x;
+				for (int stop = 1; stop <= 3; stop++) {
+					int loc = widget.getLocationAtOffset(stop).x - base;
+					assertEquals(loc, metrics.stopOffset(stop), String.format("Font %s stop %s", name, stop));
+				}
+			}
+
+			widget.setFont(null);
+			font.dispose();
+		}
+		metrics.dispose();
+	}
+
+	@Test
+	void testTabWidthInvalidates() {
+		FontMetricsCache metrics = new FontMetricsCache(widget);
+		metrics.validate(gc, TABWIDTH);
+		metrics.put(2, 42);
+
+		assertTrue(metrics.validate(gc, TABWIDTH * 2), "Refresh on tab width change");
+		if (!metrics.isMonospace()) {
+			assertEquals(FontMetricsCache.UNKNOWN, metrics.stopOffset(2), "Invalidated");
+		}
+		metrics.dispose();
+	}
+}
@@ -0,0 +1,64 @@
+package net.certiv.tools.indentguide.painter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LineCacheTest {
+
+	@Test
+	void testReplay() {
+		LineCache cache = new LineCache();
+		cache.validate(1, null, 4, 100, 1, 40);
+		assertFalse(cache.contains(10));
+
+		cache.begin(10);
+		cache.add(0, 0, 0);
+		cache.add(32, Frame.ASC, 1);
+		assertTrue(cache.contains(10));
+
+		Frame frame = new Frame();
+		frame.addLine(0, 16);
+		cache.replay(10, frame, 5);
+		assertEquals(2, frame.stops());
+		assertEquals(5, frame.stopX(0));
+		assertEquals(37, frame.stopX(1));
+		assertEquals(Frame.ASC, frame.stopFlags(1));
+		assertEquals(1, frame.stopDepth(1));
+	}
+
+	@Test
+	void testEviction() {
+		LineCache cache = new LineCache();
+		cache.validate(1, null, 4, 100, 1, 40);
+		int slots = cache.capacity();
+
+		cache.begin(3);
+		cache.begin(3 + slots); // one window distant
+		assertFalse(cache.contains(3));
+		assertTrue(cache.contains(3 + slots));
+	}
+
+	@Test
+	void testInvalidation() {
+		LineCache cache = new LineCache();
+		cache.validate(1, null, 4, 100, 1, 40);
+		cache.begin(3);
+
+		cache.validate(1, null, 4, 100, 1, 40);
+		assertTrue(cache.contains(3));
+
+		cache.validate(2, null, 4, 100, 1, 40); // document changed
+		assertFalse(cache.contains(3));
+
+		cache.begin(3);
+		cache.validate(2, null, 4, 100, 2, 40); // configuration changed
+		assertFalse(cache.contains(3));
+
+		cache.begin(3);
+		cache.validate(2, null, 4, 100, 2, cache.capacity() + 1); // window grown
+		assertFalse(cache.contains(3));
+	}
+}
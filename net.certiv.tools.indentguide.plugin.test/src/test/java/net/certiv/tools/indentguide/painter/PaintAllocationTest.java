@@ -0,0 +1,87 @@
+package net.certiv.tools.indentguide.painter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.TextViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.widgets.Event;
+import org.junit.jupiter.api.Test;
+
+class PaintAllocationTest extends TestBase {
+
+	private static final int PAINTS = 200;
+
+	@Test
+	void testSteadyStatePaintAllocatesNothing() throws Exception {
+		Method allocated = allocatedBytes();
+		assumeTrue(allocated != null, "Thread allocation accounting not supported");
+
+		StringBuilder sb = new StringBuilder();
+		for (int idx = 0; idx < 200; idx++) {
+			sb.append("\t".repeat(idx % 7)).append("stmt();\n");
+			if (idx % 5 == 0) sb.append("\n");
+		}
+
+		TextViewer viewer = new TextViewer(shell, SWT.NONE);
+		viewer.setDocument(new Document(sb.toString()));
+		viewer.getTextWidget().setTabs(4);
+		shell.setSize(400, 2000);
+		shell.layout();
+
+		GuidePainter painter = new GuidePainter(viewer);
+		painter.paint(GuidePainter.CONFIGURATION);
+		PaintEvent evt = paintEvent(viewer);
+
+		// warm up: populate the model, frame and stop caches
+		for (int idx = 0; idx < 20; idx++) {
+			painter.paintControl(evt);
+		}
+
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		long id = Thread.currentThread().getId();
+
+		// cost of the measurement itself
+		long base = (long) allocated.invoke(bean, id);
+		long overhead = (long) allocated.invoke(bean, id) - base;
+
+		long beg = (long) allocated.invoke(bean, id);
+		for (int idx = 0; idx < PAINTS; idx++) {
+			painter.paintControl(evt);
+		}
+		long end = (long) allocated.invoke(bean, id);
+
+		painter.deactivate(false);
+		painter.dispose();
+
+		assertEquals(0, (end - beg - overhead) / PAINTS, "Bytes allocated per paint");
+	}
+
+	private PaintEvent paintEvent(TextViewer viewer) {
+		Event e = new Event();
+		e.widget = viewer.getTextWidget();
+		e.gc = gc;
+		e.x = 0;
+		e.y = 0;
+		e.width = 400;
+		e.height = 2000;
+		return new PaintEvent(e);
+	}
+
+	/** Returns the {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes} method. */
+	private Method allocatedBytes() {
+		try {
+			Class<?> cls = Class.forName("com.sun.management.ThreadMXBean", false,
+					ClassLoader.getPlatformClassLoader());
+			return cls.getMethod("getThreadAllocatedBytes", long.class);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
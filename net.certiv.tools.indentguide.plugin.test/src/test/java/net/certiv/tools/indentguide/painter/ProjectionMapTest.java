@@ -0,0 +1,44 @@
+package net.certiv.tools.indentguide.painter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.TextViewer;
+import org.eclipse.swt.SWT;
+import org.junit.jupiter.api.Test;
+
+import net.certiv.tools.indentguide.util.Utils;
+
+class ProjectionMapTest extends TestBase {
+
+	@Test
+	void testMatchesViewer() throws BadLocationException {
+		StringBuilder sb = new StringBuilder();
+		for (int idx = 0; idx < 50; idx++) {
+			sb.append("\t".repeat(idx % 4)).append("line ").append(idx).append("\n");
+		}
+		Document doc = new Document(sb.toString());
+
+		TextViewer viewer = new TextViewer(shell, SWT.NONE);
+		viewer.setDocument(doc);
+		ProjectionMap map = new ProjectionMap(viewer);
+
+		map.validate();
+		verify(viewer, map);
+
+		viewer.setVisibleRegion(doc.getLineOffset(10), doc.getLineOffset(30) - doc.getLineOffset(10));
+		map.invalidate();
+		map.validate();
+		verify(viewer, map);
+
+		map.dispose();
+	}
+
+	private void verify(TextViewer viewer, ProjectionMap map) {
+		for (int line = 0; line < viewer.getTextWidget().getLineCount(); line++) {
+			assertEquals(Utils.docLine(viewer, line), map.docLine(line), "Doc line @" + line);
+			assertEquals(Utils.isFolded(viewer, line), map.isFolded(line), "Folded @" + line);
+		}
+	}
+}
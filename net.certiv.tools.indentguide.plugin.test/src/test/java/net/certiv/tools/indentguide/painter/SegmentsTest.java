@@ -0,0 +1,99 @@
+package net.certiv.tools.indentguide.painter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class SegmentsTest {
+
+	private static final int HT = 16;
+	private static final int SP = 2;
+
+	@Test
+	void testContiguous() {
+		Frame frame = new Frame();
+		for (int line = 0; line < 100; line++) {
+			frame.addLine(line * (HT + SP), HT);
+			frame.addStop(10, 0);
+			frame.addStop(40, line > 0 ? Frame.ASC : 0);
+		}
+
+		Segments segments = new Segments();
+		segments.coalesce(frame, SP);
+
+		assertEquals(2, segments.count());
+		assertEquals(10, segments.x(0));
+		assertEquals(0, segments.y1(0));
+		assertEquals(100 * (HT + SP), segments.y2(0));
+		assertEquals(40, segments.x(1));
+		assertEquals(100 * (HT + SP), segments.y2(1));
+	}
+
+	@Test
+	void testBreaks() {
+		Frame frame = new Frame();
+		frame.addLine(0, HT);
+		frame.addStop(10, 0);
+		frame.addStop(40, 0);
+		frame.addLine(HT + SP, HT);
+		frame.addStop(10, 0);
+		frame.addLine(2 * (HT + SP), HT); // guide at 40 resumes
+		frame.addStop(10, 0);
+		frame.addStop(40, 0);
+		frame.addLine(5 * (HT + SP), HT); // folded gap
+		frame.addStop(10, 0);
+
+		Segments segments = new Segments();
+		segments.coalesce(frame, SP);
+
+		assertEquals(4, segments.count());
+		assertEquals(10, segments.x(0));
+		assertEquals(3 * (HT + SP), segments.y2(0));
+		assertEquals(40, segments.x(1));
+		assertEquals(HT + SP, segments.y2(1));
+		assertEquals(40, segments.x(2));
+		assertEquals(2 * (HT + SP), segments.y1(2));
+		assertEquals(10, segments.x(3));
+		assertEquals(5 * (HT + SP), segments.y1(3));
+	}
+
+	@Test
+	void testGroup() {
+		Frame frame = new Frame();
+		for (int line = 0; line < 3; line++) {
+			frame.addLine(line * (HT + SP), HT);
+			for (int depth = 0; depth < 5; depth++) {
+				frame.addStop(10 + depth * 30, 0, depth);
+			}
+		}
+
+		Segments segments = new Segments();
+		segments.coalesce(frame, SP);
+		assertEquals(5, segments.count());
+
+		// depths 0..4 in 3 colors: [0, 3], [1, 4], [2]
+		segments.group(3);
+		assertEquals(0, segments.groupBeg(0));
+		assertEquals(2, segments.groupEnd(0));
+		assertEquals(4, segments.groupEnd(1));
+		assertEquals(5, segments.groupEnd(2));
+		assertEquals(0, segments.depth(segments.order(0)));
+		assertEquals(3, segments.depth(segments.order(1)));
+		assertEquals(1, segments.depth(segments.order(2)));
+		assertEquals(4, segments.depth(segments.order(3)));
+		assertEquals(2, segments.depth(segments.order(4)));
+	}
+
+	@Test
+	void testReuse() {
+		Frame frame = new Frame();
+		Segments segments = new Segments();
+		for (int pass = 0; pass < 3; pass++) {
+			frame.reset();
+			frame.addLine(0, HT);
+			frame.addStop(10, 0);
+			segments.coalesce(frame, SP);
+			assertEquals(1, segments.count());
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package net.certiv.tools.indentguide.painter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.RGB;
+import org.junit.jupiter.api.Test;
+
+class SharedResourcesTest extends TestBase {
+
+	@Test
+	void testSharedColor() {
+		SharedResources res = SharedResources.of(shell.getDisplay());
+		assertSame(res, SharedResources.of(shell.getDisplay()), "Per display");
+
+		int base = res.colors();
+		Color c1 = res.color(new RGB(10, 20, 30));
+		Color c2 = res.color(new RGB(10, 20, 30));
+		assertSame(c1, c2, "Shared");
+		assertEquals(base + 1, res.colors(), "Colors");
+
+		res.release(c1);
+		assertEquals(base + 1, res.colors(), "Referenced");
+		res.release(c2);
+		assertEquals(base, res.colors(), "Released");
+	}
+
+	@Test
+	void testAdvancedProbe() {
+		SharedResources res = SharedResources.of(shell.getDisplay());
+		boolean adv = res.advanced(widget);
+		res.invalidate();
+		assertEquals(adv, res.advanced(widget), "Probe");
+	}
+}
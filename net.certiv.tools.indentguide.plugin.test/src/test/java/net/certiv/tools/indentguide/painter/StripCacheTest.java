@@ -0,0 +1,68 @@
+package net.certiv.tools.indentguide.painter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.Image;
+import org.junit.jupiter.api.Test;
+
+class StripCacheTest extends TestBase {
+
+	private static final int SIZE = 10;
+	private static final long BYTES = 4 * SIZE * SIZE;
+
+	@Test
+	void testLookup() {
+		StripCache cache = new StripCache(BYTES * 4);
+		Font font = widget.getFont();
+
+		assertNull(cache.lookup(0, 0, 1, font, 4, 100, 1));
+		Image image = new Image(widget.getDisplay(), SIZE, SIZE);
+		assertTrue(cache.store(image, BYTES));
+
+		StripCache.Strip strip = cache.lookup(0, 0, 1, font, 4, 100, 1);
+		assertNotNull(strip);
+		assertSame(image, strip.image);
+
+		assertNull(cache.lookup(0, 0, 2, font, 4, 100, 1), "Stamp change");
+		assertNull(cache.lookup(0, 0, 1, font, 8, 100, 1), "Tab width change");
+		assertNull(cache.lookup(0, 0, 1, font, 4, 200, 1), "Zoom change");
+		assertNull(cache.lookup(0, 0, 1, font, 4, 100, 2), "Config change");
+
+		cache.dispose();
+		assertTrue(image.isDisposed());
+	}
+
+	@Test
+	void testEviction() {
+		StripCache cache = new StripCache(BYTES * 2);
+		Font font = widget.getFont();
+		Image[] images = new Image[3];
+
+		for (int top = 0; top < 3; top++) {
+			cache.lookup(top, 0, 1, font, 4, 100, 1);
+			images[top] = new Image(widget.getDisplay(), SIZE, SIZE);
+			assertTrue(cache.store(images[top], BYTES));
+			cache.lookup(0, 0, 1, font, 4, 100, 1); // keep top 0 recently used
+		}
+
+		assertEquals(2, cache.size());
+		assertEquals(BYTES * 2, cache.used());
+		assertFalse(images[0].isDisposed());
+		assertTrue(images[1].isDisposed(), "Least recently used evicted");
+		assertFalse(images[2].isDisposed());
+
+		cache.lookup(9, 0, 1, font, 4, 100, 1);
+		assertFalse(cache.store(null, BYTES * 3), "Over budget");
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.used());
+		assertTrue(images[0].isDisposed());
+	}
+}
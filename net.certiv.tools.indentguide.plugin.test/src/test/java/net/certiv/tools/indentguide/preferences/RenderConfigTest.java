@@ -0,0 +1,51 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.preferences;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.eclipse.jface.preference.PreferenceStore;
+import org.eclipse.swt.graphics.RGB;
+import org.junit.jupiter.api.Test;
+
+class RenderConfigTest {
+
+	private static final String XML = "org.eclipse.core.runtime.xml";
+
+	@Test
+	void testInherit() {
+		PreferenceStore store = new PreferenceStore();
+		store.setDefault(Pref.LINE_WIDTH, 1);
+		store.setDefault(Pref.LINE_SHIFT, 2);
+		store.setDefault(Pref.LINE_COLOR, "0,0,0");
+		store.setDefault(Pref.LINE_COLOR + Pref.DARK, "192,192,192");
+		store.setDefault(Pref.DRAW_BLANK_LINE, true);
+
+		// profile values are stored as strings
+		store.setValue(Pref.profileKey(XML, Pref.LINE_WIDTH), "3");
+		store.setValue(Pref.profileKey(XML, Pref.DRAW_BLANK_LINE), "false");
+		store.setValue(Pref.profileKey(XML, Pref.LINE_COLOR + Pref.DARK), "255,0,0");
+
+		RenderConfig global = RenderConfig.compile(store, null, false);
+		assertEquals(1, global.lineWidth, "Width");
+		assertTrue(global.drawBlankLine, "Blank line");
+		assertEquals(new RGB(0, 0, 0), global.lineColor, "Color");
+
+		RenderConfig xml = RenderConfig.compile(store, XML, true);
+		assertEquals(3, xml.lineWidth, "Width");
+		assertEquals(2, xml.lineShift, "Inherited shift");
+		assertFalse(xml.drawBlankLine, "Blank line");
+		assertEquals(new RGB(255, 0, 0), xml.lineColor, "Dark color");
+
+		RenderConfig light = RenderConfig.compile(store, XML, false);
+		assertEquals(new RGB(0, 0, 0), light.lineColor, "Inherited color");
+	}
+}
@@ -0,0 +1,37 @@
+package net.certiv.tools.indentguide.syntax;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class CommentScannerTest {
+
+	@Test
+	void testBlock() {
+		ICommentScanner scanner = BlockCommentScanner.INSTANCE;
+
+		assertTrue(scanner.isComment("\t/**", 1), "Open");
+		assertTrue(scanner.isComment("\t * doc", 1), "Body");
+		assertTrue(scanner.isComment("\t *", 1), "Empty body");
+		assertTrue(scanner.isComment("\t */", 1), "Close");
+		assertTrue(scanner.isComment("\t *x*/", 1), "Body close");
+
+		assertFalse(scanner.isComment("\t*x", 1), "No space");
+		assertFalse(scanner.isComment("\tx = a * b;", 1), "Code");
+		assertFalse(scanner.isComment("\t// line", 1), "Line comment");
+		assertFalse(scanner.isComment("\t", 1), "Empty");
+	}
+
+	@Test
+	void testLine() {
+		ICommentScanner scanner = new LineCommentScanner("//");
+
+		assertTrue(scanner.isComment("\t// comment", 1), "Comment");
+		assertTrue(scanner.isComment("\t  //", 1), "Indented");
+
+		assertFalse(scanner.isComment("\tx = 1; // trailing", 1), "Trailing");
+		assertFalse(scanner.isComment("\t/", 1), "Short");
+		assertFalse(scanner.isComment("\t * doc", 1), "Block");
+	}
+}
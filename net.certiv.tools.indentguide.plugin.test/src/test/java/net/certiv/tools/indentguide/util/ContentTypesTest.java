@@ -0,0 +1,51 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.util;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.eclipse.core.runtime.content.IContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import net.certiv.tools.indentguide.adaptors.ContentTypeAdaptor;
+
+class ContentTypesTest {
+
+	private final ContentTypes types = ContentTypes.getDefault();
+
+	private final IContentType text = new ContentTypeAdaptor("test.text", "Text", null);
+	private final IContentType xml = new ContentTypeAdaptor("test.xml", "XML", text);
+	private final IContentType pom = new ContentTypeAdaptor("test.pom", "POM", xml);
+	private final IContentType java = new ContentTypeAdaptor("test.java", "Java", text);
+
+	@AfterEach
+	void reset() {
+		types.setExcluded(Set.of());
+	}
+
+	@Test
+	void testExcluded() {
+		types.setExcluded(Set.of("test.xml"));
+
+		assertTrue(types.isExcluded(xml), "Excluded");
+		assertTrue(types.isExcluded(pom), "Subtype");
+		assertFalse(types.isExcluded(text), "Base type");
+		assertFalse(types.isExcluded(java), "Sibling");
+		assertTrue(types.isExcluded(null), "Null");
+
+		// memoised decisions discarded on change
+		types.setExcluded(Set.of("test.java"));
+		assertFalse(types.isExcluded(pom), "Subtype");
+		assertTrue(types.isExcluded(java), "Excluded");
+	}
+}
@@ -8,17 +8,25 @@
  *****************************************************************************/
 package net.certiv.tools.indentguide;
 
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
+import net.certiv.tools.indentguide.metrics.PaintMetrics;
+import net.certiv.tools.indentguide.util.ContentTypes;
+import net.certiv.tools.indentguide.util.Log;
+import net.certiv.tools.indentguide.util.Log.Level;
 import net.certiv.tools.indentguide.util.MsgBuilder;
 
 public class Activator extends AbstractUIPlugin {
 
 	public static final String PLUGIN_ID = "net.certiv.tools.indentguide"; //$NON-NLS-1$
-	private static final String PREFIX = "Indent Guide: "; //$NON-NLS-1$
 
 	private static Activator plugin;
 
@@ -35,40 +43,71 @@ public class Activator extends AbstractUIPlugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
-		log("Starting...");
+		Log.getDefault().setSink(getLog());
+		register(Log.NAME, Log.getDefault());
+		register(PaintMetrics.NAME, PaintMetrics.getDefault());
+		ContentTypes.getDefault().install();
+		debug("Starting...");
 	}
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		ContentTypes.getDefault().uninstall();
+		unregister(PaintMetrics.NAME);
+		unregister(Log.NAME);
+		Log.getDefault().setSink(null);
 		plugin = null;
 		super.stop(context);
 	}
 
+	// registers the given MBean in the platform MBean server
+	private static void register(String name, Object mbean) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName oname = new ObjectName(name);
+			if (!server.isRegistered(oname)) server.registerMBean(mbean, oname);
+		} catch (JMException | RuntimeException e) {
+			log(e);
+		}
+	}
+
+	private static void unregister(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName oname = new ObjectName(name);
+			if (server.isRegistered(oname)) server.unregisterMBean(oname);
+		} catch (JMException | RuntimeException e) {
+			log(e);
+		}
+	}
+
 	// ------------------------------------------
 
 	public static void log(Throwable e) {
-		plugin.getLog().log(new Status(IStatus.ERROR, PLUGIN_ID, e.getMessage()));
+		Log.getDefault().error(e);
 	}
 
+	/** Logs a formatted message at the {@code INFO} level. Not formatted unless enabled. */
 	public static void log(String fmt, Object... args) {
-		String msg = print(PREFIX + String.format(fmt, args));
-		plugin.getLog().log(new Status(IStatus.INFO, PLUGIN_ID, msg));
+		Log.getDefault().log(Level.INFO, fmt, args);
 	}
 
 	public static void log(MsgBuilder mb) {
-		String msg = print(PREFIX + mb.toString());
-		plugin.getLog().log(new Status(IStatus.INFO, PLUGIN_ID, msg));
+		Log.getDefault().log(Level.INFO, mb::toString);
 	}
 
-	private static String print(String msg) {
-		StackTraceElement caller = Thread.currentThread().getStackTrace()[3];
-		return info(caller.getClassName(), caller.getLineNumber(), msg);
+	/** Logs a supplied message at the {@code INFO} level. Not built unless enabled. */
+	public static void log(Supplier<MsgBuilder> msg) {
+		Log.getDefault().log(Level.INFO, msg);
 	}
 
-	private static String info(String clsname, int line, String msg) {
-		if (clsname.startsWith(PLUGIN_ID)) {
-			clsname = clsname.substring(PLUGIN_ID.length() + 1);
-		}
-		return String.format("%s:%s \t%s", clsname, line, msg);
+	/** Logs a formatted message at the {@code DEBUG} level, with the caller location. */
+	public static void debug(String fmt, Object... args) {
+		Log.getDefault().log(Level.DEBUG, fmt, args);
+	}
+
+	/** Logs a supplied message at the {@code DEBUG} level, with the caller location. */
+	public static void debug(Supplier<MsgBuilder> msg) {
+		Log.getDefault().log(Level.DEBUG, msg);
 	}
 }
@@ -0,0 +1,248 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.content.IContentType;
+import org.eclipse.jface.text.ITextViewerExtension2;
+import org.eclipse.jface.text.source.ISourceViewer;
+import org.eclipse.ui.IWorkbenchPart;
+import org.eclipse.ui.texteditor.AbstractTextEditor;
+
+import net.certiv.tools.indentguide.painter.GuidePainter;
+
+/**
+ * Registry of the painter installed in each editor, keyed by the identity of the workbench part
+ * and of the text editor, being the part itself or a page of a multi-page part.
+ * <p>
+ * Entries are released when their part is closed. As a safety net, the registry references
+ * parts, editors, viewers and painters only weakly, and drops the entries of any part or editor
+ * collected without having been closed. An editor found not to take a painter, by content type
+ * exclusion or by its viewer, is registered as rejected, so that it is not evaluated again on
+ * each activation. Not thread-safe: access only from the UI thread.
+ */
+class PainterRegistry {
+
+	private final Map<Key, Entry> entries = new HashMap<>();
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+	// reusable lookup key
+	private final Key probe = new Key();
+
+	/** Registered painter of an editor. */
+	static class Entry {
+
+		final IContentType type;
+		private final WeakReference<ISourceViewer> viewer;
+		private WeakReference<GuidePainter> painter;
+		private boolean rejected;
+
+		private Entry(IContentType type, ISourceViewer viewer) {
+			this.type = type;
+			this.viewer = new WeakReference<>(viewer);
+		}
+
+		/** Returns the editor viewer, or {@code null} if collected. */
+		ISourceViewer viewer() {
+			return viewer.get();
+		}
+
+		/** Returns the installed painter, or {@code null} if none. */
+		GuidePainter painter() {
+			return painter != null ? painter.get() : null;
+		}
+
+		/** Returns {@code true} if the editor is not to take a painter. */
+		boolean isRejected() {
+			return rejected;
+		}
+
+		/** Marks the editor as not to take a painter. */
+		void reject() {
+			rejected = true;
+		}
+
+		/** Installs the given painter in the editor viewer. */
+		void install(GuidePainter painter) {
+			ISourceViewer v = viewer.get();
+			if (v == null) return;
+
+			this.painter = new WeakReference<>(painter);
+			((ITextViewerExtension2) v).addPainter(painter);
+		}
+
+		/** Removes any installed painter from the editor viewer, and disposes the painter. */
+		void uninstall() {
+			GuidePainter p = painter();
+			ISourceViewer v = viewer.get();
+			if (p != null) {
+				if (v != null) ((ITextViewerExtension2) v).removePainter(p);
+				p.dispose();
+			}
+			painter = null;
+		}
+	}
+
+	/** Identity key of a part and editor; strongly referencing where used as a lookup probe. */
+	private static class Key {
+
+		IWorkbenchPart part;
+		AbstractTextEditor editor;
+		int hash;
+
+		Key set(IWorkbenchPart part, AbstractTextEditor editor) {
+			this.part = part;
+			this.editor = editor;
+			hash = 31 * System.identityHashCode(part) + System.identityHashCode(editor);
+			return this;
+		}
+
+		IWorkbenchPart part() {
+			return part;
+		}
+
+		AbstractTextEditor editor() {
+			return editor;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			Key k = (Key) obj;
+			IWorkbenchPart p = part();
+			return hash == k.hash && p != null && p == k.part() && editor() == k.editor();
+		}
+	}
+
+	/** Registered key; references the part and editor weakly. */
+	private static class WeakKey extends Key {
+
+		private final KeyRef<IWorkbenchPart> partRef;
+		private final KeyRef<AbstractTextEditor> editorRef;
+
+		WeakKey(IWorkbenchPart part, AbstractTextEditor editor, ReferenceQueue<Object> queue) {
+			hash = 31 * System.identityHashCode(part) + System.identityHashCode(editor);
+			partRef = new KeyRef<>(part, this, queue);
+			editorRef = new KeyRef<>(editor, this, queue);
+		}
+
+		@Override
+		IWorkbenchPart part() {
+			return partRef.get();
+		}
+
+		@Override
+		AbstractTextEditor editor() {
+			return editorRef.get();
+		}
+	}
+
+	private static class KeyRef<T> extends WeakReference<T> {
+
+		final WeakKey key;
+
+		KeyRef(T referent, WeakKey key, ReferenceQueue<Object> queue) {
+			super(referent, queue);
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Returns the entry of the given part and editor.
+	 *
+	 * @param part   the workbench part
+	 * @param editor the text editor of the part
+	 * @return the entry, or {@code null} if not registered
+	 */
+	Entry find(IWorkbenchPart part, AbstractTextEditor editor) {
+		expunge();
+		Entry entry = entries.get(probe.set(part, editor));
+		probe.set(null, null);
+		return entry;
+	}
+
+	/**
+	 * Registers a new entry for the given part and editor.
+	 *
+	 * @param part   the workbench part
+	 * @param editor the text editor of the part
+	 * @param type   the editor content type
+	 * @param viewer the editor viewer, or {@code null} if not resolved
+	 * @return the new entry
+	 */
+	Entry add(IWorkbenchPart part, AbstractTextEditor editor, IContentType type, ISourceViewer viewer) {
+		expunge();
+		Entry entry = new Entry(type, viewer);
+		entries.put(new WeakKey(part, editor, queue), entry);
+		Activator.debug("painter registry: %s entries", entries.size());
+		return entry;
+	}
+
+	/**
+	 * Removes the entries of the given part, being one entry per editor page of the part.
+	 *
+	 * @param part the workbench part
+	 * @return the removed entries
+	 */
+	List<Entry> remove(IWorkbenchPart part) {
+		expunge();
+		List<Entry> removed = new ArrayList<>();
+		for (Iterator<Map.Entry<Key, Entry>> itr = entries.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<Key, Entry> e = itr.next();
+			if (e.getKey().part() == part) {
+				removed.add(e.getValue());
+				itr.remove();
+			}
+		}
+		if (!removed.isEmpty()) Activator.debug("painter registry: %s entries", entries.size());
+		return removed;
+	}
+
+	/** Removes the rejected entries, so that their editors are evaluated anew. */
+	void removeRejected() {
+		expunge();
+		entries.values().removeIf(Entry::isRejected);
+	}
+
+	/** Returns the registered entries. */
+	Collection<Entry> entries() {
+		expunge();
+		return entries.values();
+	}
+
+	/** Returns the number of registered entries. */
+	int size() {
+		expunge();
+		return entries.size();
+	}
+
+	// drops the entries of collected parts and editors
+	private void expunge() {
+		int cnt = 0;
+		for (Reference<?> ref; (ref = queue.poll()) != null;) {
+			if (entries.remove(((KeyRef<?>) ref).key) != null) cnt++;
+		}
+		if (cnt > 0) Activator.debug("painter registry: %s collected, %s entries", cnt, entries.size());
+	}
+}
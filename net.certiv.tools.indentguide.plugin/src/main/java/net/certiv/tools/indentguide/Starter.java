@@ -8,11 +8,17 @@
  *****************************************************************************/
 package net.certiv.tools.indentguide;
 
-import java.util.LinkedHashSet;
-import java.util.Objects;
-import java.util.Set;
-
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBuffer;
+import org.eclipse.core.filebuffers.ITextFileBufferManager;
+import org.eclipse.core.filebuffers.LocationKind;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -21,12 +27,21 @@ import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.dialogs.IPageChangeProvider;
 import org.eclipse.jface.dialogs.PageChangedEvent;
 import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.ITextViewerExtension2;
 import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.events.PaintListener;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.IEditorReference;
+import org.eclipse.ui.IPathEditorInput;
 import org.eclipse.ui.IStartup;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPage;
@@ -42,10 +57,18 @@ import org.eclipse.ui.texteditor.IDocumentProvider;
 import org.eclipse.ui.texteditor.IDocumentProviderExtension4;
 import org.eclipse.ui.themes.IThemeManager;
 
+import net.certiv.tools.indentguide.PainterRegistry.Entry;
 import net.certiv.tools.indentguide.adaptors.PartAdaptor;
 import net.certiv.tools.indentguide.adaptors.WindowAdaptor;
+import net.certiv.tools.indentguide.model.IndentModel;
+import net.certiv.tools.indentguide.model.WarmupJob;
 import net.certiv.tools.indentguide.painter.GuidePainter;
+import net.certiv.tools.indentguide.painter.SharedResources;
 import net.certiv.tools.indentguide.preferences.Pref;
+import net.certiv.tools.indentguide.preferences.Profiles;
+import net.certiv.tools.indentguide.syntax.CommentSyntaxes;
+import net.certiv.tools.indentguide.syntax.ICommentScanner;
+import net.certiv.tools.indentguide.util.ContentTypes;
 import net.certiv.tools.indentguide.util.MsgBuilder;
 import net.certiv.tools.indentguide.util.Utils;
 import net.certiv.tools.indentguide.util.Utils.Delta;
@@ -56,29 +79,57 @@ public class Starter implements IStartup {
 	private static final String SOURCE_VIEWER = "getSourceViewer"; // $NON-NLS-1$
 
 	private IPreferenceStore store;
-	private Set<String> excludedTypeIds;	// excluded content type ids
+	private final ContentTypes types = ContentTypes.getDefault();
+	private final Profiles profiles = Profiles.getDefault();
 
-	// value=unique data records
-	private final LinkedHashSet<Data> datas = new LinkedHashSet<>();
+	private final PainterRegistry registry = new PainterRegistry();
 
 	private final PartWatcher partWatcher = new PartWatcher();
 	private final PropWatcher propWatcher = new PropWatcher();
 
+	// startup timing: time of early startup, and UI thread time spent in the starter, until the
+	// first frame is painted; startup is 0 once logged
+	private volatile long startup;
+	private long spent;
+	private boolean tracking;
+
+	// file buffers warming the documents of editors not yet restored; key=editor reference
+	private final Map<IWorkbenchPartReference, BufferSource> held = new HashMap<>();
+	// large file evaluations; key=document; value=evaluation, current while its stamp is;
+	// accessed also from the warm-up job
+	private final Map<IDocument, Sizing> sizings = Collections.synchronizedMap(new WeakHashMap<>());
+
+	/** Large file evaluation of a document. */
+	private static class Sizing {
+
+		final long stamp;
+		final boolean large;
+
+		Sizing(long stamp, boolean large) {
+			this.stamp = stamp;
+			this.large = large;
+		}
+	}
+
 	@Override
 	public void earlyStartup() {
+		startup = System.nanoTime();
 		UIJob job = new UIJob("Indent Guide Startup") {
 
 			@Override
 			public IStatus runInUIThread(IProgressMonitor monitor) {
+				long start = System.nanoTime();
 				IWorkbench wb = PlatformUI.getWorkbench();
 				wb.getThemeManager().addPropertyChangeListener(propWatcher);
 				store = Activator.getDefault().getPreferenceStore();
 				store.addPropertyChangeListener(propWatcher);
 
 				updateContentTypes();
+				warmup();
 				initWorkbenchWindows();
 
 				wb.addWindowListener(new WindowWatcher());
+				spent += System.nanoTime() - start;
 				return Status.OK_STATUS;
 			}
 		};
@@ -95,11 +146,193 @@ public class Starter implements IStartup {
 		}
 	}
 
+	// installs painters in the visible editors only; others are installed when first shown
 	private void initWorkbenchWindow(IWorkbenchWindow window) {
 		for (IWorkbenchPage page : window.getPages()) {
-			IWorkbenchPart part = page.getActivePart();
-			if (part instanceof MultiPageEditorPart || part instanceof AbstractTextEditor) {
-				installPainter(part);
+			for (IEditorReference ref : page.getEditorReferences()) {
+				IWorkbenchPart part = ref.getPart(false);
+				if ((part instanceof MultiPageEditorPart || part instanceof AbstractTextEditor)
+						&& page.isPartVisible(part)) {
+					installPainter(part);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Schedules the background analysis of the documents of the editors not yet shown, so that
+	 * first showing an editor adopts a ready analysis of its document. Run before the painters
+	 * of the visible editors are installed; those analyse their documents on installation. Only
+	 * the editor inputs are collected on the UI thread.
+	 * <p>
+	 * The document of an editor not yet restored is that of the file buffer of its input,
+	 * connected by the warm-up job. The buffer is held connected until the editor is shown or
+	 * closed, so that the editor, when shown, connects to the warmed document.
+	 */
+	private void warmup() {
+		if (!store.getBoolean(Pref.ENABLED)) return;
+
+		WarmupJob job = new WarmupJob(Display.getCurrent());
+		for (IWorkbenchWindow window : PlatformUI.getWorkbench().getWorkbenchWindows()) {
+			for (IWorkbenchPage page : window.getPages()) {
+				for (IEditorReference ref : page.getEditorReferences()) {
+					IWorkbenchPart part = ref.getPart(false);
+					try {
+						if (part == null) {
+							warmInput(job, ref);
+						} else if (!page.isPartVisible(part)) {
+							warmEditor(job, activeEditor(part));
+						}
+					} catch (Throwable e) {
+						Activator.log(e);
+					}
+				}
+			}
+		}
+
+		if (job.size() > 0) {
+			Activator.debug("warm-up scheduled [%s documents]", job.size());
+			job.schedule();
+		}
+	}
+
+	// adds the document of the given restored, but not shown, editor
+	private void warmEditor(WarmupJob job, AbstractTextEditor editor) throws Throwable {
+		if (editor == null) return;
+
+		ISourceViewer viewer = Utils.invoke(editor, SOURCE_VIEWER);
+		if (viewer == null || viewer.getTextWidget() == null) return;
+
+		IDocument doc = viewer.getDocument();
+		if (doc == null || IndentModel.isKnown(doc)) return;
+
+		job.add(new ViewerSource(editor, doc, viewer.getTextWidget().getTabs()));
+	}
+
+	// adds the document of the file buffer of the input of the given unrestored editor
+	private void warmInput(WarmupJob job, IEditorReference ref) throws CoreException {
+		IEditorInput input = ref.getEditorInput();
+		if (!(input instanceof IPathEditorInput) || held.containsKey(ref)) return;
+
+		BufferSource src = new BufferSource(((IPathEditorInput) input).getPath(), input.getName());
+		held.put(ref, src);
+		job.add(src);
+	}
+
+	// releases the file buffer held for the given editor, if any
+	private void releaseHeld(IWorkbenchPartReference ref) {
+		BufferSource src = held.remove(ref);
+		if (src != null) src.release();
+	}
+
+	private void releaseAllHeld() {
+		for (BufferSource src : held.values()) {
+			src.release();
+		}
+		held.clear();
+	}
+
+	// returns the comment scanner of the given document; callable from any thread
+	private ICommentScanner scannerFor(IContentType type, IDocument doc, String name) {
+		if (isLargeFile(doc, name)) return ICommentScanner.NONE;
+		return CommentSyntaxes.getDefault().scannerFor(type, name);
+	}
+
+	/** Warm-up source of the document of a restored editor. */
+	private class ViewerSource implements WarmupJob.Source {
+
+		private final AbstractTextEditor editor;
+		private final IDocument doc;
+		private final int tabWidth;
+
+		ViewerSource(AbstractTextEditor editor, IDocument doc, int tabWidth) {
+			this.editor = editor;
+			this.doc = doc;
+			this.tabWidth = tabWidth;
+		}
+
+		@Override
+		public IDocument document() {
+			return doc;
+		}
+
+		@Override
+		public int tabWidth() {
+			return tabWidth;
+		}
+
+		@Override
+		public ICommentScanner scanner(IDocument doc) {
+			IContentType type = typeOf(editor);
+			return valid(type) ? scannerFor(type, doc, srcname(editor)) : null;
+		}
+	}
+
+	/**
+	 * Warm-up source of the document of the file buffer of the input of an editor not yet
+	 * restored. The buffer is connected on the job thread, and held until released on the UI
+	 * thread, where the editor is shown or closed.
+	 */
+	private class BufferSource implements WarmupJob.Source {
+
+		private final IPath path;
+		private final String name;
+		private IContentType type;
+		// guarded by this
+		private boolean connected;
+		private boolean released;
+
+		BufferSource(IPath path, String name) {
+			this.path = path;
+			this.name = name;
+		}
+
+		@Override
+		public IDocument document() throws CoreException {
+			synchronized (this) {
+				if (released) return null;
+			}
+
+			ITextFileBufferManager mgr = FileBuffers.getTextFileBufferManager();
+			mgr.connect(path, LocationKind.NORMALIZE, null);
+			synchronized (this) {
+				connected = true;
+				if (released) { // released while connecting
+					release();
+					return null;
+				}
+			}
+
+			ITextFileBuffer buffer = mgr.getTextFileBuffer(path, LocationKind.NORMALIZE);
+			if (buffer == null) return null;
+
+			type = buffer.getContentType();
+			if (type == null) type = types.get(Utils.UNKNOWN);
+			return buffer.getDocument();
+		}
+
+		@Override
+		public int tabWidth() {
+			return Utils.editorTabWidth();
+		}
+
+		@Override
+		public ICommentScanner scanner(IDocument doc) {
+			if (valid(type)) return scannerFor(type, doc, name);
+			release(); // not painted, so not worth holding
+			return null;
+		}
+
+		/** Releases the file buffer, if connected. */
+		synchronized void release() {
+			released = true;
+			if (!connected) return;
+
+			connected = false;
+			try {
+				FileBuffers.getTextFileBufferManager().disconnect(path, LocationKind.NORMALIZE, null);
+			} catch (CoreException e) {
+				Activator.log(e);
 			}
 		}
 	}
@@ -110,33 +343,123 @@ public class Starter implements IStartup {
 		AbstractTextEditor editor = activeEditor(part);
 		if (editor == null) return;
 
+		Entry entry = registry.find(part, editor);
+		if (entry != null) {
+			if (entry.isRejected()) return;
+			if (entry.painter() != null) {
+				updateLargeFile(entry); // document may have grown while hidden
+				return;
+			}
+		}
+
+		long start = startup != 0 ? System.nanoTime() : 0;
 		IContentType type = typeOf(editor);
 		boolean valid = valid(type);
-		Activator.log("painter %sallowed for '%s' [%s]", valid ? "" : "dis", srcname(editor), type.getName());
-		if (!valid) return;
+		Activator.debug(() -> new MsgBuilder("painter %sallowed for '%s' [%s]", valid ? "" : "dis", srcname(editor),
+				type.getName()));
+		if (!valid) {
+			if (entry == null) entry = registry.add(part, editor, type, null);
+			entry.reject();
+			return;
+		}
 
 		try {
-			ISourceViewer viewer = Utils.invoke(editor, SOURCE_VIEWER);
+			ISourceViewer viewer = entry != null ? entry.viewer() : null;
+			if (viewer == null) viewer = Utils.invoke(editor, SOURCE_VIEWER);
 
 			if (viewer instanceof ITextViewerExtension2) {
-				Data data = findRecord(part, editor);
-				if (data == null) {
-					data = new Data(part, editor, type, viewer);
-					datas.add(data);
-				}
-				if (data.painter == null) {
-					data.painter = new GuidePainter(viewer);
-					((ITextViewerExtension2) viewer).addPainter(data.painter);
-					Activator.log("painter installed");
-				}
+				if (entry == null) entry = registry.add(part, editor, type, viewer);
+				ICommentScanner scanner = CommentSyntaxes.getDefault().scannerFor(type, srcname(editor));
+				GuidePainter painter = new GuidePainter(viewer, scanner, profiles.config(type));
+				painter.setLargeFile(isLargeFile(viewer.getDocument(), srcname(editor)));
+				painter.stats().setName(srcname(editor));
+				entry.install(painter);
+				Activator.debug("painter installed");
+				if (start != 0) trackFirstPaint(viewer.getTextWidget());
 
 			} else {
-				Activator.log("painter not installable in viewer [%s]", Utils.nameOf(viewer));
+				Activator.debug("painter not installable in viewer [%s]", Utils.nameOf(viewer));
+				if (entry == null) entry = registry.add(part, editor, type, viewer);
+				entry.reject();
 			}
 
 		} catch (Throwable e) {
 			Activator.log(e);
 		}
+		if (start != 0) spent += System.nanoTime() - start;
+	}
+
+	/**
+	 * Logs, on the first paint of the given widget, the time from startup to the first painted
+	 * frame, and the UI thread time spent in the starter until then.
+	 */
+	private void trackFirstPaint(StyledText widget) {
+		if (tracking) return;
+		tracking = true;
+
+		widget.addPaintListener(new PaintListener() {
+
+			@Override
+			public void paintControl(PaintEvent evt) {
+				widget.removePaintListener(this);
+				if (startup == 0) return;
+
+				long elapsed = System.nanoTime() - startup;
+				startup = 0;
+				Activator.log("startup to first painted frame [%s ms; %s ms in starter]", elapsed / 1000000,
+						spent / 1000000);
+			}
+		});
+	}
+
+	/**
+	 * Returns {@code true} if the given document is at or above either of the large file line
+	 * count and line length thresholds, excluding line delimiters. The evaluation is retained
+	 * until the document is changed, so that the warm-up and the painter installation of a
+	 * document evaluate it once.
+	 */
+	private boolean isLargeFile(IDocument doc, String name) {
+		if (doc == null) return false;
+
+		long stamp = doc instanceof IDocumentExtension4 ? ((IDocumentExtension4) doc).getModificationStamp()
+				: IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+		Sizing sizing = sizings.get(doc);
+		if (sizing == null || sizing.stamp != stamp) {
+			sizing = new Sizing(stamp, evalLargeFile(doc, name));
+			sizings.put(doc, sizing);
+		}
+		return sizing.large;
+	}
+
+	/** Reselects the large file mode of the painter of the given entry, if any. */
+	private void updateLargeFile(Entry entry) {
+		GuidePainter painter = entry.painter();
+		ISourceViewer viewer = entry.viewer();
+		if (painter != null && viewer != null) {
+			painter.setLargeFile(isLargeFile(viewer.getDocument(), painter.stats().name()));
+		}
+	}
+
+	private boolean evalLargeFile(IDocument doc, String name) {
+		int maxLines = store.getInt(Pref.LARGE_FILE_LINES);
+		int maxLength = store.getInt(Pref.LARGE_FILE_LINE_LENGTH);
+
+		int lines = doc.getNumberOfLines();
+		if (lines >= maxLines) {
+			Activator.log("large file mode selected for '%s' [%s lines]", name, lines);
+			return true;
+		}
+
+		try {
+			for (int line = 0; line < lines; line++) {
+				int len = doc.getLineInformation(line).getLength();
+				if (len >= maxLength) {
+					Activator.log("large file mode selected for '%s' [line %s length %s]", name, line + 1, len);
+					return true;
+				}
+			}
+		} catch (BadLocationException e) {}
+		return false;
 	}
 
 	private AbstractTextEditor activeEditor(IWorkbenchPart part) {
@@ -159,16 +482,8 @@ public class Starter implements IStartup {
 		return (editor instanceof AbstractTextEditor) ? (AbstractTextEditor) editor : null;
 	}
 
-	private Data findRecord(IWorkbenchPart part, AbstractTextEditor editor) {
-		return datas.stream() //
-				.filter(d -> d.part.equals(part) && d.editor.equals(editor)) //
-				.findFirst() //
-				.orElse(null);
-	}
-
 	private boolean valid(IContentType type) {
-		if (type == null) return false;
-		return !excludedTypeIds.contains(type.getId());
+		return !types.isExcluded(type);
 	}
 
 	private IContentType typeOf(AbstractTextEditor editor) {
@@ -182,7 +497,7 @@ public class Starter implements IStartup {
 				Activator.log(e);
 			}
 		}
-		return Utils.getPlatformTextType(Utils.UNKNOWN);
+		return types.get(Utils.UNKNOWN);
 	}
 
 	private String srcname(AbstractTextEditor editor) {
@@ -191,43 +506,48 @@ public class Starter implements IStartup {
 	}
 
 	private void updateContentTypes() {
-		excludedTypeIds = Utils.undelimit(store.getString(Pref.CONTENT_TYPES));
+		types.setExcluded(Utils.undelimit(store.getString(Pref.CONTENT_TYPES)));
 	}
 
+	/**
+	 * Recompiles the render settings, and refreshes each painter with those of its content type
+	 * and with its large file mode.
+	 */
 	private void refreshAll() {
-		Activator.log("refreshAll...");
-		for (Data d : datas) {
-			if (d.painter != null) {
-				d.painter.loadPrefs();
-				d.painter.redrawAll();
+		Activator.debug("refreshAll...");
+		profiles.invalidate();
+		for (Entry entry : registry.entries()) {
+			GuidePainter painter = entry.painter();
+			if (painter != null) {
+				painter.setConfig(profiles.config(entry.type));
+				updateLargeFile(entry);
 			}
 		}
 	}
 
-	private void deactivate(IWorkbenchPart part) {
-		AbstractTextEditor editor = activeEditor(part);
-		Data d = findRecord(part, editor);
-		if (d != null && d.painter != null) {
-			((ITextViewerExtension2) d.viewer).removePainter(d.painter);
-			d.painter = null;
+	/** Removes the painters of, and releases the entries of, the given closed part. */
+	private void release(IWorkbenchPart part) {
+		for (Entry entry : registry.remove(part)) {
+			entry.uninstall();
 		}
 	}
 
-	private void deactivate(Set<IContentType> types) {
-		for (Data d : datas) {
-			if (types.contains(d.type) && d.painter != null) {
-				((ITextViewerExtension2) d.viewer).removePainter(d.painter);
-				d.painter = null;
+	/**
+	 * Removes the painters of, and rejects, the editors of excluded content types, including
+	 * subtypes.
+	 */
+	private void deactivateExcluded() {
+		for (Entry entry : registry.entries()) {
+			if (!valid(entry.type)) {
+				entry.uninstall();
+				entry.reject();
 			}
 		}
 	}
 
 	private void deactivateAll() {
-		for (Data d : datas) {
-			if (d.painter != null) {
-				((ITextViewerExtension2) d.viewer).removePainter(d.painter);
-				d.painter = null;
-			}
+		for (Entry entry : registry.entries()) {
+			entry.uninstall();
 		}
 	}
 
@@ -242,21 +562,23 @@ public class Starter implements IStartup {
 	private class PartWatcher extends PartAdaptor {
 
 		@Override
-		public void partOpened(IWorkbenchPartReference ref) {
+		public void partVisible(IWorkbenchPartReference ref) {
 			IWorkbenchPart part = ref.getPart(false);
 			if (part instanceof MultiPageEditorPart || part instanceof AbstractTextEditor) {
 				installPainter(part);
-				// Activator.log("part opened '%s'", Utils.nameOf(part));
+				// Activator.log("part visible '%s'", Utils.nameOf(part));
 			}
+			releaseHeld(ref); // the editor holds its own connection once shown
 		}
 
 		@Override
 		public void partClosed(IWorkbenchPartReference ref) {
 			IWorkbenchPart part = ref.getPart(false);
 			if (part instanceof MultiPageEditorPart || part instanceof AbstractTextEditor) {
-				deactivate(part);
+				release(part);
 				// Activator.log("part closed '%s'", Utils.nameOf(part));
 			}
+			releaseHeld(ref);
 		}
 
 		@Override
@@ -280,6 +602,7 @@ public class Starter implements IStartup {
 
 			if (prop.equals(IThemeManager.CHANGE_CURRENT_THEME)) {
 				// Activator.log("theme change '%s' [%s] => [%s]", prop, old, now);
+				SharedResources.invalidateAll();
 				refreshAll();
 
 			} else if (prop.startsWith(Pref.KEY)) {
@@ -290,6 +613,7 @@ public class Starter implements IStartup {
 
 					} else {
 						deactivateAll();
+						releaseAllHeld();
 					}
 
 				} else if (prop.equals(Pref.CONTENT_TYPES)) {
@@ -302,18 +626,22 @@ public class Starter implements IStartup {
 						MsgBuilder mb = new MsgBuilder("content type change [%s]", prop);
 
 						if (delta.increased()) {
+							registry.removeRejected(); // re-evaluated against the new exclusions
 							initWorkbenchWindows();
 							mb.nl().indent("enabled  [%s]", delta.added);
 						}
 
 						if (delta.decreased()) {
 							mb.nl().indent("disabled [%s]", delta.rmved);
-							deactivate(Utils.getPlatformTextType(delta.rmved));
+							deactivateExcluded();
 						}
 
-						Activator.log(mb.toString());
+						Activator.debug(() -> mb);
 					}
 
+				} else if (prop.equals(Pref.LARGE_FILE_LINES) || prop.equals(Pref.LARGE_FILE_LINE_LENGTH)) {
+					sizings.clear(); // reselected for each painter on refresh
+
 					// } else {
 					// Activator.log("property change '%s' [%s] => [%s]", prop, old, now);
 				}
@@ -322,33 +650,4 @@ public class Starter implements IStartup {
 			}
 		}
 	}
-
-	private class Data {
-		IWorkbenchPart part;
-		AbstractTextEditor editor;
-		IContentType type;
-		ISourceViewer viewer;
-		GuidePainter painter;
-
-		Data(IWorkbenchPart part, AbstractTextEditor editor, IContentType type, ISourceViewer viewer) {
-			this.part = part;
-			this.editor = editor;
-			this.type = type;
-			this.viewer = viewer;
-		}
-
-		@Override
-		public int hashCode() {
-			return Objects.hash(part, editor);
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj) return true;
-			if (obj == null) return false;
-			if (getClass() != obj.getClass()) return false;
-			Data d = (Data) obj;
-			return Objects.equals(part, d.part) && Objects.equals(editor, d.editor);
-		}
-	}
 }
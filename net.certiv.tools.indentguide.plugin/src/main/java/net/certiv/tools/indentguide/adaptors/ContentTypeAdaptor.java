@@ -31,7 +31,7 @@ public class ContentTypeAdaptor implements IContentType {
 		this.id = uniqueId;
 		this.name = name;
 		this.baseType = baseType;
-		this.baseTypeId = baseType.getId();
+		this.baseTypeId = baseType != null ? baseType.getId() : null;
 	}
 
 	@Override
@@ -0,0 +1,69 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.metrics;
+
+import java.beans.ConstructorProperties;
+
+/** Point-in-time paint metrics of a single editor, as published through the MBean. */
+public class EditorStats {
+
+	private final String name;
+	private final long paints;
+	private final long linesProcessed;
+	private final long stopsDrawn;
+	private final long blankLookups;
+	private final long p50PaintMicros;
+	private final long p99PaintMicros;
+
+	@ConstructorProperties({ "name", "paints", "linesProcessed", "stopsDrawn", "blankLookups", "p50PaintMicros",
+			"p99PaintMicros" })
+	public EditorStats(String name, long paints, long linesProcessed, long stopsDrawn, long blankLookups,
+			long p50PaintMicros, long p99PaintMicros) {
+		this.name = name;
+		this.paints = paints;
+		this.linesProcessed = linesProcessed;
+		this.stopsDrawn = stopsDrawn;
+		this.blankLookups = blankLookups;
+		this.p50PaintMicros = p50PaintMicros;
+		this.p99PaintMicros = p99PaintMicros;
+	}
+
+	static EditorStats of(PaintStats stats) {
+		return new EditorStats(stats.name(), stats.paints(), stats.lines(), stats.stops(), stats.lookups(),
+				stats.percentile(50), stats.percentile(99));
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getPaints() {
+		return paints;
+	}
+
+	public long getLinesProcessed() {
+		return linesProcessed;
+	}
+
+	public long getStopsDrawn() {
+		return stopsDrawn;
+	}
+
+	public long getBlankLookups() {
+		return blankLookups;
+	}
+
+	public long getP50PaintMicros() {
+		return p50PaintMicros;
+	}
+
+	public long getP99PaintMicros() {
+		return p99PaintMicros;
+	}
+}
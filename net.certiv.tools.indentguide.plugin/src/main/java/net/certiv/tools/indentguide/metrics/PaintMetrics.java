@@ -0,0 +1,118 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Paint metrics of all installed painters, published as a platform MBean. Each painter adds its
+ * {@link PaintStats} on creation and removes them on disposal. Registered by the activator.
+ */
+public class PaintMetrics implements PaintMetricsMXBean {
+
+	public static final String NAME = "net.certiv.tools.indentguide:type=PaintMetrics"; //$NON-NLS-1$
+
+	private static final PaintMetrics INSTANCE = new PaintMetrics();
+
+	private final List<PaintStats> stats = new CopyOnWriteArrayList<>();
+
+	/** Returns the shared instance. */
+	public static PaintMetrics getDefault() {
+		return INSTANCE;
+	}
+
+	private PaintMetrics() {}
+
+	/** Adds the given painter metrics. */
+	public void add(PaintStats paintStats) {
+		stats.add(paintStats);
+	}
+
+	/** Removes the given painter metrics. */
+	public void remove(PaintStats paintStats) {
+		stats.remove(paintStats);
+	}
+
+	@Override
+	public int getPainters() {
+		return stats.size();
+	}
+
+	@Override
+	public long getPaints() {
+		long sum = 0;
+		for (PaintStats s : stats) {
+			sum += s.paints();
+		}
+		return sum;
+	}
+
+	@Override
+	public long getLinesProcessed() {
+		long sum = 0;
+		for (PaintStats s : stats) {
+			sum += s.lines();
+		}
+		return sum;
+	}
+
+	@Override
+	public long getStopsDrawn() {
+		long sum = 0;
+		for (PaintStats s : stats) {
+			sum += s.stops();
+		}
+		return sum;
+	}
+
+	@Override
+	public long getBlankLookups() {
+		long sum = 0;
+		for (PaintStats s : stats) {
+			sum += s.lookups();
+		}
+		return sum;
+	}
+
+	@Override
+	public long getP50PaintMicros() {
+		return PaintStats.percentile(histogram(), 50);
+	}
+
+	@Override
+	public long getP99PaintMicros() {
+		return PaintStats.percentile(histogram(), 99);
+	}
+
+	private long[] histogram() {
+		long[] hist = new long[PaintStats.BUCKETS];
+		for (PaintStats s : stats) {
+			s.addTo(hist);
+		}
+		return hist;
+	}
+
+	@Override
+	public List<EditorStats> getEditors() {
+		List<EditorStats> editors = new ArrayList<>();
+		for (PaintStats s : stats) {
+			editors.add(EditorStats.of(s));
+		}
+		return editors;
+	}
+
+	@Override
+	public void reset() {
+		for (PaintStats s : stats) {
+			s.reset();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.metrics;
+
+import java.util.List;
+
+/**
+ * Management interface of the guide painter metrics, registered in the platform MBean server
+ * as {@value PaintMetrics#NAME}.
+ */
+public interface PaintMetricsMXBean {
+
+	/** Returns the number of installed painters. */
+	int getPainters();
+
+	/** Returns the number of paints, over all painters. */
+	long getPaints();
+
+	/** Returns the number of lines processed, over all painters. */
+	long getLinesProcessed();
+
+	/** Returns the number of stops drawn, over all painters. */
+	long getStopsDrawn();
+
+	/** Returns the number of non-blank line lookups, over all painters. */
+	long getBlankLookups();
+
+	/** Returns the approximate median paint time in microseconds, over all painters. */
+	long getP50PaintMicros();
+
+	/** Returns the approximate 99th percentile paint time in microseconds, over all painters. */
+	long getP99PaintMicros();
+
+	/** Returns the metrics of each installed painter. */
+	List<EditorStats> getEditors();
+
+	/** Clears the metrics of all installed painters. */
+	void reset();
+}
@@ -0,0 +1,133 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.metrics;
+
+/**
+ * Paint counters and paint time histogram of a single painter.
+ * <p>
+ * Updated on the UI thread only; read without synchronization, so values read from other
+ * threads are approximate. Paint times are held in power-of-two nanosecond buckets; percentiles
+ * are reported as the upper bound of the bucket containing the percentile.
+ */
+public class PaintStats {
+
+	static final int BUCKETS = 40;
+
+	private volatile String name;
+
+	private long paints;
+	private long lines;
+	private long stops;
+	private long lookups;
+	private final long[] buckets = new long[BUCKETS];
+
+	public PaintStats(String name) {
+		this.name = name;
+	}
+
+	/** Returns the name of the painted editor. */
+	public String name() {
+		return name;
+	}
+
+	/** Sets the name of the painted editor. */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Records a paint.
+	 *
+	 * @param nanos   the paint time
+	 * @param lines   the number of lines processed
+	 * @param stops   the number of stops drawn
+	 * @param lookups the number of non-blank line lookups
+	 */
+	public void record(long nanos, int lines, int stops, int lookups) {
+		paints++;
+		this.lines += lines;
+		this.stops += stops;
+		this.lookups += lookups;
+		buckets[bucket(nanos)]++;
+	}
+
+	/** Clears all counters. */
+	public void reset() {
+		paints = lines = stops = lookups = 0;
+		for (int idx = 0; idx < BUCKETS; idx++) {
+			buckets[idx] = 0;
+		}
+	}
+
+	/** Returns the number of paints. */
+	public long paints() {
+		return paints;
+	}
+
+	/** Returns the number of lines processed. */
+	public long lines() {
+		return lines;
+	}
+
+	/** Returns the number of stops drawn. */
+	public long stops() {
+		return stops;
+	}
+
+	/** Returns the number of non-blank line lookups. */
+	public long lookups() {
+		return lookups;
+	}
+
+	/**
+	 * Adds the paint time histogram of this painter to the given histogram.
+	 *
+	 * @param hist the histogram, of {@code BUCKETS} buckets
+	 */
+	void addTo(long[] hist) {
+		for (int idx = 0; idx < BUCKETS; idx++) {
+			hist[idx] += buckets[idx];
+		}
+	}
+
+	/** Returns the approximate paint time percentile, in microseconds. */
+	public long percentile(double pct) {
+		return percentile(buckets, pct);
+	}
+
+	// bucket of the given time: 0 for 0ns, otherwise 1 + floor(log2(nanos))
+	static int bucket(long nanos) {
+		if (nanos <= 0) return 0;
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+	}
+
+	/**
+	 * Returns the upper bound, in microseconds, of the bucket of the given histogram containing
+	 * the given percentile.
+	 *
+	 * @param hist the histogram
+	 * @param pct  the percentile (0..100)
+	 * @return the percentile, or {@code 0} if the histogram is empty
+	 */
+	static long percentile(long[] hist, double pct) {
+		long total = 0;
+		for (long cnt : hist) {
+			total += cnt;
+		}
+		if (total == 0) return 0;
+
+		long rank = (long) Math.ceil(total * pct / 100);
+		long sum = 0;
+		for (int idx = 0; idx < hist.length; idx++) {
+			sum += hist[idx];
+			if (sum >= Math.max(rank, 1)) return (1L << idx) / 1000;
+		}
+		return (1L << (hist.length - 1)) / 1000;
+	}
+}
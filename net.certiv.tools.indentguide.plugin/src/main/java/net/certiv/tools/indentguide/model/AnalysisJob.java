@@ -0,0 +1,94 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.model;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.widgets.Display;
+
+import net.certiv.tools.indentguide.syntax.ICommentScanner;
+
+/**
+ * Background job analysing a copy of the text of a modeled document. The resulting snapshot
+ * is published to the model, then handed to the model on the UI thread for adoption. A newer
+ * request cancels any analysis in progress.
+ */
+class AnalysisJob extends Job {
+
+	private static final long DELAY = 50;
+
+	private final IndentModel model;
+	private final AtomicReference<Request> request = new AtomicReference<>();
+
+	private static class Request {
+		final Display display;
+		final String text;
+		final long stamp;
+		final int tabWidth;
+		final ICommentScanner scanner;
+
+		Request(Display display, String text, long stamp, int tabWidth, ICommentScanner scanner) {
+			this.display = display;
+			this.text = text;
+			this.stamp = stamp;
+			this.tabWidth = tabWidth;
+			this.scanner = scanner;
+		}
+	}
+
+	AnalysisJob(IndentModel model) {
+		super("Indent Guide Analysis");
+		this.model = model;
+		setSystem(true);
+		setPriority(Job.DECORATE);
+	}
+
+	/**
+	 * Requests analysis of the given document text, superseding any prior request.
+	 *
+	 * @param display  the display of the UI thread adopting the result
+	 * @param text     the document text
+	 * @param stamp    the document modification stamp corresponding to the text
+	 * @param tabWidth the tab width
+	 * @param scanner  the comment scanner
+	 */
+	void submit(Display display, String text, long stamp, int tabWidth, ICommentScanner scanner) {
+		request.set(new Request(display, text, stamp, tabWidth, scanner));
+		cancel();
+		schedule(DELAY);
+	}
+
+	/** Discards any pending request. */
+	void discard() {
+		request.set(null);
+		cancel();
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		Request req = request.get();
+		if (req == null) return Status.OK_STATUS;
+
+		IndentSnapshot snap = IndentSnapshot.analyse(req.text, req.stamp, req.tabWidth, req.scanner, monitor);
+		if (snap == null || monitor.isCanceled()) return Status.CANCEL_STATUS;
+
+		// superseded while running; rescheduled for the newer request
+		if (!request.compareAndSet(req, null)) return Status.CANCEL_STATUS;
+
+		model.publish(snap);
+		if (!req.display.isDisposed()) {
+			req.display.asyncExec(() -> model.adopt(snap));
+		}
+		return Status.OK_STATUS;
+	}
+}
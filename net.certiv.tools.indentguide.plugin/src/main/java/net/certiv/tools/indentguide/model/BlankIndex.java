@@ -0,0 +1,221 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.model;
+
+import java.util.Arrays;
+
+/**
+ * Index of the maximal runs of consecutive blank lines of a document.
+ * <p>
+ * Runs are held as sorted, non-overlapping, non-adjacent line ranges. The nearest non-blank
+ * line before or after any line is found by a binary search over the runs, independent of the
+ * run lengths. The index is maintained incrementally: a change re-derives only the runs
+ * touching the changed lines and shifts the runs that follow.
+ */
+public class BlankIndex {
+
+	private static final int MIN_SIZE = 16;
+
+	/** Number of lines indexed. */
+	private int count;
+	/** Number of runs. */
+	private int runs;
+	/** First line per run. */
+	private int[] runBeg = new int[MIN_SIZE];
+	/** Last line, inclusive, per run. */
+	private int[] runEnd = new int[MIN_SIZE];
+
+	// scratch storage for re-derived runs
+	private int[] tmpBeg = new int[MIN_SIZE];
+	private int[] tmpEnd = new int[MIN_SIZE];
+	private int tmps;
+
+	/**
+	 * Rebuilds the index from the given line flags.
+	 *
+	 * @param flags the line flags
+	 * @param count the number of lines
+	 */
+	public void rebuild(byte[] flags, int count) {
+		this.count = count;
+		runs = 0;
+		scan(flags, 0, count - 1);
+		ensureCapacity(tmps);
+		System.arraycopy(tmpBeg, 0, runBeg, 0, tmps);
+		System.arraycopy(tmpEnd, 0, runEnd, 0, tmps);
+		runs = tmps;
+	}
+
+	/**
+	 * Updates the index for a change that replaced the lines {@code beg..oldEnd} with the lines
+	 * {@code beg..newEnd}. The given flags must already reflect the change.
+	 *
+	 * @param flags  the updated line flags
+	 * @param count  the updated number of lines
+	 * @param beg    the first changed line
+	 * @param oldEnd the last changed line, before the change
+	 * @param newEnd the last changed line, after the change
+	 */
+	public void update(byte[] flags, int count, int beg, int oldEnd, int newEnd) {
+		int delta = newEnd - oldEnd;
+		this.count = count;
+
+		// runs touching, or adjacent to, the changed lines
+		int lo = firstEndingAtOrAfter(beg - 1);
+		int hi = lastBeginningAtOrBefore(oldEnd + 1);
+
+		int from = beg;
+		int to = oldEnd;
+		if (lo <= hi) {
+			from = Math.min(from, runBeg[lo]);
+			to = Math.max(to, runEnd[hi]);
+		} else {
+			hi = lo - 1; // no runs affected; insert at lo
+		}
+
+		scan(flags, from, Math.min(to + delta, count - 1));
+
+		// splice re-derived runs in place of the affected runs; shift the remainder
+		int removed = hi - lo + 1;
+		int tail = runs - (hi + 1);
+		ensureCapacity(runs - removed + tmps);
+		System.arraycopy(runBeg, hi + 1, runBeg, lo + tmps, tail);
+		System.arraycopy(runEnd, hi + 1, runEnd, lo + tmps, tail);
+		System.arraycopy(tmpBeg, 0, runBeg, lo, tmps);
+		System.arraycopy(tmpEnd, 0, runEnd, lo, tmps);
+		runs = runs - removed + tmps;
+
+		if (delta != 0) {
+			for (int idx = lo + tmps; idx < runs; idx++) {
+				runBeg[idx] += delta;
+				runEnd[idx] += delta;
+			}
+		}
+	}
+
+	/**
+	 * Returns the nearest non-blank line preceding the given line.
+	 *
+	 * @param line the starting line
+	 * @return the prior non-blank line, or {@code -1} if none
+	 */
+	public int prevNonblank(int line) {
+		int prev = Math.min(line, count) - 1;
+		if (prev < 0) return -1;
+
+		int idx = lastBeginningAtOrBefore(prev);
+		if (idx >= 0 && runEnd[idx] >= prev) return runBeg[idx] - 1;
+		return prev;
+	}
+
+	/**
+	 * Returns the nearest non-blank line following the given line.
+	 *
+	 * @param line the starting line
+	 * @return the next non-blank line, or {@code -1} if none
+	 */
+	public int nextNonblank(int line) {
+		int next = Math.max(line, -1) + 1;
+		if (next >= count) return -1;
+
+		int idx = lastBeginningAtOrBefore(next);
+		if (idx >= 0 && runEnd[idx] >= next) next = runEnd[idx] + 1;
+		return next < count ? next : -1;
+	}
+
+	/**
+	 * Returns the run containing the given line.
+	 *
+	 * @param line the line
+	 * @return the run index, or {@code -1} if the line is not blank
+	 */
+	public int runOf(int line) {
+		int idx = lastBeginningAtOrBefore(line);
+		return idx >= 0 && runEnd[idx] >= line ? idx : -1;
+	}
+
+	/** Returns the first line of the given run. */
+	public int runBeg(int run) {
+		return runBeg[run];
+	}
+
+	/** Returns the last line, inclusive, of the given run. */
+	public int runEnd(int run) {
+		return runEnd[run];
+	}
+
+	/** Returns the number of blank line runs. */
+	public int runs() {
+		return runs;
+	}
+
+	// index of the last run beginning at or before the given line; -1 if none
+	private int lastBeginningAtOrBefore(int line) {
+		int lo = 0;
+		int hi = runs - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (runBeg[mid] <= line) {
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return hi;
+	}
+
+	// index of the first run ending at or after the given line; runs if none
+	private int firstEndingAtOrAfter(int line) {
+		int lo = 0;
+		int hi = runs - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (runEnd[mid] < line) {
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	// collects the runs within the given line range into the scratch arrays
+	private void scan(byte[] flags, int from, int to) {
+		tmps = 0;
+		int beg = -1;
+		for (int line = from; line <= to; line++) {
+			boolean blank = (flags[line] & IndentModel.BLANK) != 0;
+			if (blank && beg < 0) {
+				beg = line;
+			} else if (!blank && beg >= 0) {
+				addTmp(beg, line - 1);
+				beg = -1;
+			}
+		}
+		if (beg >= 0) addTmp(beg, to);
+	}
+
+	private void addTmp(int beg, int end) {
+		if (tmps >= tmpBeg.length) {
+			tmpBeg = Arrays.copyOf(tmpBeg, tmps << 1);
+			tmpEnd = Arrays.copyOf(tmpEnd, tmps << 1);
+		}
+		tmpBeg[tmps] = beg;
+		tmpEnd[tmps] = end;
+		tmps++;
+	}
+
+	private void ensureCapacity(int size) {
+		if (size <= runBeg.length) return;
+
+		int cap = Math.max(size, runBeg.length + (runBeg.length >> 1));
+		runBeg = Arrays.copyOf(runBeg, cap);
+		runEnd = Arrays.copyOf(runEnd, cap);
+	}
+}
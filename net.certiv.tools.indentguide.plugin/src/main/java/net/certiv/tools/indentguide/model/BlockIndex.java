@@ -0,0 +1,325 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.model;
+
+import java.util.Arrays;
+
+/**
+ * Index of the indentation blocks of a document.
+ * <p>
+ * The nesting depth of a non-blank line is its number of leading indent levels; that of a blank
+ * line is the lesser of the depths of the nearest non-blank lines before and after. A block of
+ * depth {@code d > 0} is a maximal run of consecutive lines of depth {@code d} or greater. The
+ * blocks of each depth are held as sorted, non-overlapping line ranges, so the block of a given
+ * depth containing any line is found by a binary search.
+ * <p>
+ * The index is maintained incrementally. No block of depth greater than {@code k} spans a
+ * non-blank line of depth {@code k}. Where the changed lines, before and after the change, and
+ * the nearest unchanged non-blank lines around them are all of depth {@code k} or greater, the
+ * blocks of depth {@code k} or less are unchanged but for being stretched over the change.
+ * Only the blocks of greater depth are re-derived, between the nearest lines of depth
+ * {@code k} or less around the change, so an edit is bounded by its enclosing block at the
+ * depth of the edited lines. The blocks that follow are shifted.
+ */
+public class BlockIndex {
+
+	private static final int MIN_SIZE = 16;
+	private static final int MIN_DEPTH = 8;
+
+	/** Number of lines indexed. */
+	private int count;
+	/** Greatest block depth. */
+	private int depths;
+	/** Number of blocks per depth. */
+	private int[] blocks = new int[MIN_DEPTH];
+	/** First line per block, per depth. */
+	private int[][] blockBeg = new int[MIN_DEPTH][];
+	/** Last line, inclusive, per block, per depth. */
+	private int[][] blockEnd = new int[MIN_DEPTH][];
+
+	// scratch storage for re-derived blocks
+	private int tmpDepths;
+	private int[] tmps = new int[MIN_DEPTH];
+	private int[][] tmpBeg = new int[MIN_DEPTH][];
+	private int[][] tmpEnd = new int[MIN_DEPTH][];
+	private int[] open = new int[MIN_DEPTH];
+	// number of lines re-derived by the last update
+	private int rescanned;
+
+	/**
+	 * Rebuilds the index from the given line state.
+	 *
+	 * @param stops the line tab stop counts
+	 * @param flags the line flags
+	 * @param count the number of lines
+	 */
+	public void rebuild(int[] stops, byte[] flags, int count) {
+		this.count = count;
+		Arrays.fill(blocks, 0);
+		depths = 0;
+
+		scan(stops, flags, 0, count - 1, 0);
+		splice(0, Integer.MAX_VALUE, 0, 0, -1);
+	}
+
+	/**
+	 * Updates the index for a change that replaced the lines {@code beg..oldEnd} with the lines
+	 * {@code beg..newEnd}. The given line state must already reflect the change.
+	 *
+	 * @param stops  the updated line tab stop counts
+	 * @param flags  the updated line flags
+	 * @param count  the updated number of lines
+	 * @param beg    the first changed line
+	 * @param oldEnd the last changed line, before the change
+	 * @param newEnd the last changed line, after the change
+	 * @param oldMin the least depth of the non-blank changed lines, before the change;
+	 *               {@link Integer#MAX_VALUE} if none
+	 */
+	public void update(int[] stops, byte[] flags, int count, int beg, int oldEnd, int newEnd, int oldMin) {
+		int delta = newEnd - oldEnd;
+		this.count = count;
+
+		// nearest unchanged non-blank lines around the change
+		int prev = Math.min(beg, count) - 1;
+		while (prev >= 0 && isBlank(flags, prev)) {
+			prev--;
+		}
+		int next = newEnd + 1;
+		while (next < count && isBlank(flags, next)) {
+			next++;
+		}
+
+		// depth of the blocks unchanged but for being stretched over the change
+		int base = 0;
+		if (prev >= 0 && next < count) {
+			base = Math.min(oldMin, Math.min(depth(stops, prev), depth(stops, next)));
+			for (int line = beg; line <= newEnd && base > 0; line++) {
+				if (!isBlank(flags, line)) base = Math.min(base, depth(stops, line));
+			}
+		}
+
+		// nearest lines of the base depth or less, or document boundaries, around the change
+		int from = Math.max(prev, 0);
+		while (from > 0 && !isBoundary(stops, flags, from, base)) {
+			from--;
+		}
+		int to = Math.min(next, count - 1);
+		while (to < count - 1 && !isBoundary(stops, flags, to, base)) {
+			to++;
+		}
+
+		scan(stops, flags, from, to, base);
+		splice(from, to - delta, delta, base, prev);
+		rescanned = to - from + 1;
+	}
+
+	/** Returns the number of lines re-derived by the last update. */
+	int rescanned() {
+		return rescanned;
+	}
+
+	/**
+	 * Returns the block of the given depth containing the given line.
+	 *
+	 * @param depth the block depth
+	 * @param line  the line
+	 * @return the block index, or {@code -1} if none
+	 */
+	public int find(int depth, int line) {
+		if (depth <= 0 || depth > depths) return -1;
+
+		int idx = lastBeginningAtOrBefore(blockBeg[depth], blocks[depth], line);
+		return idx >= 0 && blockEnd[depth][idx] >= line ? idx : -1;
+	}
+
+	/** Returns the first line of the given block of the given depth. */
+	public int blockBeg(int depth, int block) {
+		return blockBeg[depth][block];
+	}
+
+	/** Returns the last line, inclusive, of the given block of the given depth. */
+	public int blockEnd(int depth, int block) {
+		return blockEnd[depth][block];
+	}
+
+	/** Returns the number of blocks of the given depth. */
+	public int blocks(int depth) {
+		return depth > 0 && depth <= depths ? blocks[depth] : 0;
+	}
+
+	/** Returns the greatest block depth. */
+	public int depths() {
+		return depths;
+	}
+
+	/** Returns the number of lines indexed. */
+	public int lineCount() {
+		return count;
+	}
+
+	private static boolean isBlank(byte[] flags, int line) {
+		return (flags[line] & IndentModel.BLANK) != 0;
+	}
+
+	private static int depth(int[] stops, int line) {
+		return stops[line] - 1;
+	}
+
+	// non-blank line of the given depth or less
+	private static boolean isBoundary(int[] stops, byte[] flags, int line, int depth) {
+		return !isBlank(flags, line) && depth(stops, line) <= depth;
+	}
+
+	// collects the blocks of greater than the given base depth within the given line range into
+	// the scratch arrays; the range must begin and end at a document boundary or a line of the
+	// base depth or less
+	private void scan(int[] stops, byte[] flags, int from, int to, int base) {
+		tmpDepths = 0;
+		Arrays.fill(tmps, 0);
+
+		int prev = -1; // prior non-blank line
+		int cur = base; // depth of the prior non-blank line
+		for (int line = from; line <= to; line++) {
+			if (isBlank(flags, line)) continue;
+
+			int depth = Math.max(depth(stops, line), base);
+			for (int d = cur; d > depth; d--) {
+				addTmp(d, open[d], prev);
+			}
+			if (depth >= open.length) open = Arrays.copyOf(open, Math.max(depth + 1, open.length << 1));
+			for (int d = cur + 1; d <= depth; d++) {
+				open[d] = line;
+			}
+			cur = depth;
+			prev = line;
+		}
+		for (int d = cur; d > base; d--) {
+			addTmp(d, open[d], prev);
+		}
+	}
+
+	private void addTmp(int depth, int beg, int end) {
+		ensureDepth(depth);
+		if (tmpBeg[depth] == null) {
+			tmpBeg[depth] = new int[MIN_SIZE];
+			tmpEnd[depth] = new int[MIN_SIZE];
+		}
+		int n = tmps[depth];
+		if (n >= tmpBeg[depth].length) {
+			tmpBeg[depth] = Arrays.copyOf(tmpBeg[depth], n << 1);
+			tmpEnd[depth] = Arrays.copyOf(tmpEnd[depth], n << 1);
+		}
+		tmpBeg[depth][n] = beg;
+		tmpEnd[depth][n] = end;
+		tmps[depth] = n + 1;
+		tmpDepths = Math.max(tmpDepths, depth);
+	}
+
+	// splices the scratch blocks in place of the blocks of greater than the base depth within the
+	// given prior line range, stretches the blocks of the base depth or less containing the given
+	// line preceding the change, and shifts the blocks that follow by the given line delta
+	private void splice(int from, int to, int delta, int base, int at) {
+		int max = Math.max(depths, tmpDepths);
+		for (int d = 1; d <= max; d++) {
+			if (d <= base) {
+				stretch(d, at, delta);
+				continue;
+			}
+
+			int n = blocks[d];
+			int[] begs = blockBeg[d];
+			int[] ends = blockEnd[d];
+
+			// replaced blocks, being those beginning within the range
+			int lo = lastBeginningAtOrBefore(begs, n, from - 1) + 1;
+			int hi = lastBeginningAtOrBefore(begs, n, to) + 1;
+
+			int add = tmps[d];
+			int size = n - (hi - lo) + add;
+			ensureCapacity(d, size);
+			begs = blockBeg[d];
+			ends = blockEnd[d];
+
+			int tail = n - hi;
+			System.arraycopy(begs, hi, begs, lo + add, tail);
+			System.arraycopy(ends, hi, ends, lo + add, tail);
+			if (add > 0) {
+				System.arraycopy(tmpBeg[d], 0, begs, lo, add);
+				System.arraycopy(tmpEnd[d], 0, ends, lo, add);
+			}
+			blocks[d] = size;
+
+			if (delta != 0) {
+				for (int idx = lo + add; idx < size; idx++) {
+					begs[idx] += delta;
+					ends[idx] += delta;
+				}
+			}
+		}
+
+		depths = max;
+		while (depths > 0 && blocks[depths] == 0) {
+			depths--;
+		}
+	}
+
+	// stretches the block of the given depth containing the given line by the given line delta,
+	// and shifts the blocks that follow
+	private void stretch(int depth, int at, int delta) {
+		if (delta == 0) return;
+
+		int n = blocks[depth];
+		int[] begs = blockBeg[depth];
+		int[] ends = blockEnd[depth];
+		int idx = lastBeginningAtOrBefore(begs, n, at);
+		if (idx >= 0 && ends[idx] >= at) ends[idx] += delta;
+		for (idx++; idx < n; idx++) {
+			begs[idx] += delta;
+			ends[idx] += delta;
+		}
+	}
+
+	// index of the last block beginning at or before the given line; -1 if none
+	private static int lastBeginningAtOrBefore(int[] begs, int n, int line) {
+		int lo = 0;
+		int hi = n - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (begs[mid] <= line) {
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return hi;
+	}
+
+	private void ensureDepth(int depth) {
+		if (depth < blocks.length) return;
+
+		int cap = Math.max(depth + 1, blocks.length << 1);
+		blocks = Arrays.copyOf(blocks, cap);
+		blockBeg = Arrays.copyOf(blockBeg, cap);
+		blockEnd = Arrays.copyOf(blockEnd, cap);
+		tmps = Arrays.copyOf(tmps, cap);
+		tmpBeg = Arrays.copyOf(tmpBeg, cap);
+		tmpEnd = Arrays.copyOf(tmpEnd, cap);
+	}
+
+	private void ensureCapacity(int depth, int size) {
+		if (blockBeg[depth] == null) {
+			blockBeg[depth] = new int[Math.max(MIN_SIZE, size)];
+			blockEnd[depth] = new int[Math.max(MIN_SIZE, size)];
+		} else if (size > blockBeg[depth].length) {
+			int cap = Math.max(size, blockBeg[depth].length + (blockBeg[depth].length >> 1));
+			blockBeg[depth] = Arrays.copyOf(blockBeg[depth], cap);
+			blockEnd[depth] = Arrays.copyOf(blockEnd[depth], cap);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.model;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+
+/**
+ * Reusable character sequence view of a range of a document. Reads the document content in
+ * place; no text is copied.
+ */
+class DocumentChars implements CharSequence {
+
+	private final IDocument doc;
+	private int offset;
+	private int length;
+
+	DocumentChars(IDocument doc) {
+		this.doc = doc;
+	}
+
+	/**
+	 * Sets the viewed document range.
+	 *
+	 * @param offset the range offset
+	 * @param length the range length
+	 */
+	void set(int offset, int length) {
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) throw new IndexOutOfBoundsException("index: " + index); //$NON-NLS-1$
+		try {
+			return doc.getChar(offset + index);
+		} catch (BadLocationException e) {
+			throw new IndexOutOfBoundsException("index: " + index); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		try {
+			return doc.get(offset + start, end - start);
+		} catch (BadLocationException e) {
+			throw new IndexOutOfBoundsException("range: " + start + ".." + end); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	@Override
+	public String toString() {
+		return subSequence(0, length).toString();
+	}
+}
@@ -0,0 +1,24 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.model;
+
+/** Listener notified of the lines whose guide geometry is changed by a document change. */
+@FunctionalInterface
+public interface IModelListener {
+
+	/**
+	 * Notifies that the guides of the given document lines, numbered as of after the change,
+	 * may have changed. Not called where a change leaves the guides of all lines unchanged.
+	 *
+	 * @param begLine the first damaged line
+	 * @param endLine the last damaged line, inclusive
+	 * @param delta   the change in the number of document lines
+	 */
+	void modelChanged(int begLine, int endLine, int delta);
+}
@@ -0,0 +1,770 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.model;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.swt.widgets.Display;
+
+import net.certiv.tools.indentguide.syntax.BlockCommentScanner;
+import net.certiv.tools.indentguide.syntax.ICommentScanner;
+import net.certiv.tools.indentguide.util.Log;
+import net.certiv.tools.indentguide.util.Log.Level;
+
+/**
+ * Per-document model of the leading indentation of each document line.
+ * <p>
+ * The line state is held in primitive arrays indexed by document line number and is kept
+ * current by listening for document changes. Only the lines touched by a
+ * {@code DocumentEvent} are re-analysed; painting reduces to a lookup.
+ * <p>
+ * Listeners are notified of the lines whose guides are changed by each document change.
+ * <p>
+ * A full analysis of a document of {@link #ASYNC_LINES} or more lines is run in the background
+ * on a copy of the document text, producing an {@link IndentSnapshot} keyed by the document
+ * modification stamp. Until a snapshot current with the document is adopted, lines are
+ * analysed on first access, so query results are unaffected.
+ * <p>
+ * Models are shared by all painters attached to the same document and are reference counted
+ * through {@link #connect} and {@link #disconnect}. A snapshot analysed ahead of the first
+ * connection may be {@link #seed seeded}, to be adopted in place of the initial analysis. The
+ * registry of models references documents and models only weakly, so the model of a document
+ * left connected is collected with the document. Not thread-safe: access only from the UI
+ * thread.
+ */
+public class IndentModel implements IDocumentListener {
+
+	/** Line flag: the line is blank. */
+	public static final int BLANK = 1;
+	/** Line flag: the line is a comment line, as recognised by the comment scanner. */
+	public static final int COMMENT = 1 << 1;
+	/** Line flag: the leading whitespace contains at least one tab character. */
+	public static final int TABS = 1 << 2;
+	/** Line flag: the leading whitespace contains at least one space character. */
+	public static final int SPACES = 1 << 3;
+
+	/** Minimum number of document lines for a full analysis to run in the background. */
+	public static final int ASYNC_LINES = 20000;
+
+	// line flag: the line is not yet analysed
+	private static final int PENDING = 1 << 6;
+	private static final int MIN_SIZE = 64;
+	// maximum number of line shifting changes tracked while analysis is pending
+	private static final int MAX_SHIFTS = 64;
+
+	// key=document; value=shared model
+	private static final Map<IDocument, WeakReference<IndentModel>> Models = new WeakHashMap<>();
+	// key=document; value=snapshot analysed ahead of connection
+	private static final Map<IDocument, IndentSnapshot> Seeds = new WeakHashMap<>();
+
+	private final IDocument doc;
+	private final DocumentChars chars;
+	private ICommentScanner scanner = BlockCommentScanner.INSTANCE;
+	private int tabWidth;
+	private int refs;
+
+	/** Number of lines in the model. */
+	private int count;
+	/** Visual width of the leading whitespace per line. */
+	private int[] widths = new int[0];
+	/** Number of tab stops per line. */
+	private int[] stops = new int[0];
+	/** Line flags per line. */
+	private byte[] flags = new byte[0];
+	/** Runs of blank lines. */
+	private final BlankIndex blanks = new BlankIndex();
+	/** Indentation blocks. */
+	private final BlockIndex blocks = new BlockIndex();
+
+	private final List<IModelListener> listeners = new ArrayList<>();
+
+	// background analysis; created on first use
+	private AnalysisJob job;
+	// whether lines may be pending analysis
+	private boolean pending;
+	// latest published snapshot
+	private volatile IndentSnapshot snapshot;
+	// modification stamp of the text submitted for analysis
+	private long jobStamp;
+	// line shifting changes made since the submission: first line following the changed lines,
+	// and line delta, per change; shifts is -1 once more than MAX_SHIFTS are made
+	private int shifts;
+	private final int[] shiftEnd = new int[MAX_SHIFTS];
+	private final int[] shiftDelta = new int[MAX_SHIFTS];
+
+	// first & last lines affected by a pending change; captured before the change
+	private int chgBeg;
+	private int chgEnd;
+	// least depth of the non-blank lines affected by a pending change, before the change
+	private int chgMin;
+	// prior state of the affected lines; captured only where the line count is unchanged
+	private boolean chgSaved;
+	private int[] oldWidths = new int[MIN_SIZE];
+	private byte[] oldFlags = new byte[MIN_SIZE];
+
+	/**
+	 * Returns the shared indent model for the given document, creating and populating it as
+	 * needed. Each call must be balanced by a call to {@link #disconnect}.
+	 *
+	 * @param doc      the document to model
+	 * @param tabWidth the current tab width
+	 * @return the shared model
+	 */
+	public static IndentModel connect(IDocument doc, int tabWidth) {
+		return connect(doc, tabWidth, BlockCommentScanner.INSTANCE);
+	}
+
+	/**
+	 * Returns the shared indent model for the given document, creating and populating it as
+	 * needed. Each call must be balanced by a call to {@link #disconnect}.
+	 *
+	 * @param doc      the document to model
+	 * @param tabWidth the current tab width
+	 * @param scanner  the comment scanner, used where the model is created
+	 * @return the shared model
+	 */
+	public static IndentModel connect(IDocument doc, int tabWidth, ICommentScanner scanner) {
+		IndentModel model = modelOf(doc);
+		if (model == null) {
+			model = new IndentModel(doc, tabWidth);
+			model.scanner = scanner != null ? scanner : ICommentScanner.NONE;
+			Models.put(doc, new WeakReference<>(model));
+		}
+		if (model.refs == 0) {
+			doc.addPrenotifiedDocumentListener(model);
+			model.rebuild();
+		}
+		model.refs++;
+		model.setTabWidth(tabWidth);
+		return model;
+	}
+
+	/**
+	 * Retains the given snapshot of the given document, analysed ahead of the first connection
+	 * of a model of the document. The snapshot is adopted in place of the initial analysis of
+	 * the model if still current with the document and the model settings; it is otherwise
+	 * discarded. Ignored where the document is already modeled.
+	 *
+	 * @param doc  the document
+	 * @param snap the snapshot
+	 */
+	public static void seed(IDocument doc, IndentSnapshot snap) {
+		if (modelOf(doc) == null) Seeds.put(doc, snap);
+	}
+
+	/** Returns {@code true} if the given document is modeled, or has a seeded snapshot. */
+	public static boolean isKnown(IDocument doc) {
+		return modelOf(doc) != null || Seeds.containsKey(doc);
+	}
+
+	/** Returns the number of modeled documents. */
+	public static int modelCount() {
+		return Models.size();
+	}
+
+	/**
+	 * Releases a reference to the given model. The model stops tracking its document when the
+	 * last reference is released.
+	 *
+	 * @param model the model to release
+	 */
+	public static void disconnect(IndentModel model) {
+		if (model == null || model.refs == 0) return;
+		model.refs--;
+		if (model.refs == 0) {
+			model.doc.removePrenotifiedDocumentListener(model);
+			Models.remove(model.doc);
+			if (model.job != null) model.job.discard();
+		}
+	}
+
+	private static IndentModel modelOf(IDocument doc) {
+		WeakReference<IndentModel> ref = Models.get(doc);
+		return ref != null ? ref.get() : null;
+	}
+
+	private IndentModel(IDocument doc, int tabWidth) {
+		this.doc = doc;
+		this.chars = new DocumentChars(doc);
+		this.tabWidth = Math.max(1, tabWidth);
+	}
+
+	/**
+	 * Adds a listener for guide changes. Has no effect if already registered.
+	 *
+	 * @param listener the listener
+	 */
+	public void addModelListener(IModelListener listener) {
+		if (!listeners.contains(listener)) listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener for guide changes.
+	 *
+	 * @param listener the listener
+	 */
+	public void removeModelListener(IModelListener listener) {
+		listeners.remove(listener);
+	}
+
+	/** Returns the modeled document. */
+	public IDocument getDocument() {
+		return doc;
+	}
+
+	/** Returns the tab width used to derive the tab stops. */
+	public int tabWidth() {
+		return tabWidth;
+	}
+
+	/**
+	 * Sets the tab width used to derive the tab stops. Rebuilds the model if changed.
+	 *
+	 * @param tabWidth the tab width
+	 */
+	public void setTabWidth(int tabWidth) {
+		tabWidth = Math.max(1, tabWidth);
+		if (this.tabWidth != tabWidth) {
+			this.tabWidth = tabWidth;
+			rebuild();
+		}
+	}
+
+	/** Returns the scanner used to recognise comment lines. */
+	public ICommentScanner scanner() {
+		return scanner;
+	}
+
+	/**
+	 * Sets the scanner used to recognise comment lines. Rebuilds the model if changed.
+	 *
+	 * @param scanner the comment scanner
+	 */
+	public void setScanner(ICommentScanner scanner) {
+		if (scanner == null) scanner = ICommentScanner.NONE;
+		if (this.scanner != scanner) {
+			this.scanner = scanner;
+			rebuild();
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the model line count corresponds to the document. A model that
+	 * has fallen out of step, for example due to a change made while not connected, is rebuilt.
+	 *
+	 * @return {@code true} if the model was current
+	 */
+	public boolean validate() {
+		if (count == doc.getNumberOfLines()) return true;
+		rebuild();
+		return false;
+	}
+
+	/** Returns the number of modeled lines. */
+	public int lineCount() {
+		return count;
+	}
+
+	/** Returns the visual width of the leading whitespace of the given line. */
+	public int width(int line) {
+		if (pending) ensure(line);
+		return widths[line];
+	}
+
+	/** Returns the number of tab stops, including the column zero stop, of the given line. */
+	public int stops(int line) {
+		if (pending) ensure(line);
+		return stops[line];
+	}
+
+	/** Returns the visual column of the last tab stop of the given line. */
+	public int endStop(int line) {
+		return (stops(line) - 1) * tabWidth;
+	}
+
+	/** Returns the line flags of the given line. */
+	public int flags(int line) {
+		if (pending) ensure(line);
+		return flags[line];
+	}
+
+	/** Returns {@code true} if the given line is blank. */
+	public boolean isBlank(int line) {
+		return (flags(line) & BLANK) != 0;
+	}
+
+	/** Returns {@code true} if the given line is a comment line. */
+	public boolean isComment(int line) {
+		return (flags(line) & COMMENT) != 0;
+	}
+
+	/**
+	 * Returns {@code true} if a background analysis is outstanding, in which case lines are
+	 * analysed on first access.
+	 */
+	public boolean isPending() {
+		return pending;
+	}
+
+	/**
+	 * Returns the latest snapshot published by the background analysis. The snapshot may not be
+	 * current with the document. May be called from any thread.
+	 *
+	 * @return the latest snapshot, or {@code null} if none
+	 */
+	public IndentSnapshot snapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Returns the nearest non-blank line preceding the given line.
+	 *
+	 * @param line the starting line
+	 * @return the prior non-blank line, or {@code -1} if none
+	 */
+	public int prevNonblank(int line) {
+		if (!pending) return blanks.prevNonblank(line);
+
+		for (int prev = Math.min(line, count) - 1; prev >= 0; prev--) {
+			if (!isBlank(prev)) return prev;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the nearest non-blank line following the given line.
+	 *
+	 * @param line the starting line
+	 * @return the next non-blank line, or {@code -1} if none
+	 */
+	public int nextNonblank(int line) {
+		if (!pending) return blanks.nextNonblank(line);
+
+		for (int next = Math.max(line, -1) + 1; next < count; next++) {
+			if (!isBlank(next)) return next;
+		}
+		return -1;
+	}
+
+	/** Returns the index of the blank line runs. Not current while analysis is pending. */
+	public BlankIndex blanks() {
+		return blanks;
+	}
+
+	/** Returns the index of the indentation blocks. Not current while analysis is pending. */
+	public BlockIndex blocks() {
+		return blocks;
+	}
+
+	/**
+	 * Returns the nesting depth of the given line, being its number of leading indent levels or,
+	 * for a blank line, the lesser of the depths of the nearest non-blank lines before and after.
+	 *
+	 * @param line the document line
+	 * @return the nesting depth
+	 */
+	public int depth(int line) {
+		if (!isBlank(line)) return stops(line) - 1;
+
+		int prev = prevNonblank(line);
+		int next = nextNonblank(line);
+		if (prev < 0 || next < 0) return 0;
+		return Math.min(stops(prev), stops(next)) - 1;
+	}
+
+	/**
+	 * Returns the unexpanded character position, relative to the line start, of the given tab
+	 * stop of the given line.
+	 *
+	 * @param line the document line
+	 * @param stop the stop index (0..n)
+	 * @return the stop character position, or {@code -1} if not determinable
+	 */
+	public int stopPos(int line, int stop) {
+		if (stop == 0) return 0;
+
+		switch (flags(line) & (TABS | SPACES)) {
+			case TABS:
+				return stop;
+			case SPACES:
+				return stop * tabWidth;
+			default:
+				try {
+					int offset = doc.getLineOffset(line);
+					int len = doc.getLineLength(line);
+					for (int pos = 0, col = 0, idx = 0; pos < len; pos++) {
+						char ch = doc.getChar(offset + pos);
+						if (ch == ' ') {
+							col++;
+							if (col % tabWidth == 0) idx++;
+						} else if (ch == '\t') {
+							col += tabWidth - (col % tabWidth);
+							idx++;
+						} else {
+							break;
+						}
+						if (idx == stop) return pos + 1;
+					}
+				} catch (BadLocationException e) {}
+				return -1;
+		}
+	}
+
+	@Override
+	public void documentAboutToBeChanged(DocumentEvent evt) {
+		try {
+			chgBeg = doc.getLineOfOffset(evt.getOffset());
+			chgEnd = doc.getLineOfOffset(evt.getOffset() + evt.getLength());
+		} catch (BadLocationException e) {
+			chgBeg = chgEnd = -1;
+		}
+
+		chgMin = Integer.MAX_VALUE;
+		if (!pending && chgBeg >= 0 && chgEnd < count) {
+			for (int line = chgBeg; line <= chgEnd; line++) {
+				if ((flags[line] & BLANK) == 0) chgMin = Math.min(chgMin, stops[line] - 1);
+			}
+		}
+
+		// save the prior line state where the change may leave the line count unchanged
+		String txt = evt.getText();
+		int span = txt != null ? doc.computeNumberOfLines(txt) : 0;
+		chgSaved = chgBeg >= 0 && chgEnd < count && span == chgEnd - chgBeg && !listeners.isEmpty();
+		if (chgSaved) {
+			int len = span + 1;
+			if (pending) {
+				for (int line = chgBeg; line <= chgEnd; line++) {
+					ensure(line);
+				}
+			}
+			if (len > oldWidths.length) {
+				oldWidths = new int[len];
+				oldFlags = new byte[len];
+			}
+			System.arraycopy(widths, chgBeg, oldWidths, 0, len);
+			System.arraycopy(flags, chgBeg, oldFlags, 0, len);
+		}
+	}
+
+	@Override
+	public void documentChanged(DocumentEvent evt) {
+		if (chgBeg < 0 || chgEnd >= count) {
+			rebuild();
+			fireModelChanged(0, count - 1, 0);
+			return;
+		}
+
+		try {
+			String txt = evt.getText();
+			int len = txt != null ? txt.length() : 0;
+			int end = doc.getLineOfOffset(evt.getOffset() + len);
+			shift(chgEnd + 1, end - chgEnd);
+			for (int line = chgBeg; line <= end; line++) {
+				analyse(line);
+			}
+			if (pending) {
+				track(end + 1, end - chgEnd);
+			} else {
+				blanks.update(flags, count, chgBeg, chgEnd, end);
+				blocks.update(stops, flags, count, chgBeg, chgEnd, end, chgMin);
+			}
+
+			if (!listeners.isEmpty() && (end != chgEnd || !chgSaved || changed(chgBeg, end))) {
+				// the changed lines, the blank run above, and the blank run and first
+				// non-blank line below, whose guides are inferred from the changed lines
+				int beg = prevNonblank(chgBeg) + 1;
+				int next = nextNonblank(end);
+				fireModelChanged(beg, next < 0 ? count - 1 : next, end - chgEnd);
+			}
+
+		} catch (BadLocationException e) {
+			rebuild();
+			fireModelChanged(0, count - 1, 0);
+		}
+	}
+
+	// records a change, made while analysis is pending, shifting the lines from the given line
+	private void track(int from, int delta) {
+		if (delta == 0 || shifts < 0) return;
+		if (shifts == MAX_SHIFTS) {
+			shifts = -1;
+			return;
+		}
+		shiftEnd[shifts] = from;
+		shiftDelta[shifts] = delta;
+		shifts++;
+	}
+
+	// returns the line of the submitted text corresponding to the given unchanged line
+	private int origin(int line) {
+		for (int idx = shifts - 1; idx >= 0; idx--) {
+			if (line >= shiftEnd[idx]) line -= shiftDelta[idx];
+		}
+		return line;
+	}
+
+	// returns whether the state of any of the given lines differs from the saved prior state
+	private boolean changed(int beg, int end) {
+		for (int line = beg; line <= end; line++) {
+			if (widths[line] != oldWidths[line - beg] || flags[line] != oldFlags[line - beg]) return true;
+		}
+		return false;
+	}
+
+	private void fireModelChanged(int beg, int end, int delta) {
+		for (int idx = 0; idx < listeners.size(); idx++) {
+			listeners.get(idx).modelChanged(beg, end, delta);
+		}
+	}
+
+	/**
+	 * Re-analyses all document lines. A seeded snapshot current with the document and model
+	 * settings is adopted in place of analysis. Otherwise, where the document is large enough,
+	 * and called on the UI thread of a running platform, the analysis is run in the background.
+	 */
+	public void rebuild() {
+		count = doc.getNumberOfLines();
+		ensureCapacity(count);
+
+		long stamp = stamp();
+		IndentSnapshot seed = Seeds.remove(doc);
+		if (seed != null && !adoptable(seed, stamp)) seed = null;
+		if (seed != null) {
+			if (job != null) job.discard();
+			System.arraycopy(seed.widths, 0, widths, 0, count);
+			System.arraycopy(seed.stops, 0, stops, 0, count);
+			System.arraycopy(seed.flags, 0, flags, 0, count);
+			pending = false;
+			blanks.rebuild(flags, count);
+			blocks.rebuild(stops, flags, count);
+			return;
+		}
+
+		Display display = count >= ASYNC_LINES && stamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP
+				&& Platform.isRunning() ? Display.getCurrent() : null;
+		if (display != null) {
+			Arrays.fill(flags, 0, count, (byte) PENDING);
+			pending = true;
+			jobStamp = stamp;
+			shifts = 0;
+			if (job == null) job = new AnalysisJob(this);
+			job.submit(display, doc.get(), stamp, tabWidth, scanner);
+			return;
+		}
+
+		if (job != null) job.discard();
+		pending = false;
+		for (int line = 0; line < count; line++) {
+			ensure(line);
+		}
+		blanks.rebuild(flags, count);
+		blocks.rebuild(stops, flags, count);
+	}
+
+	// returns whether the given seed is current with the document and model settings; logs why not
+	private boolean adoptable(IndentSnapshot seed, long stamp) {
+		String reason = null;
+		if (seed.stamp() != stamp || stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) {
+			reason = "document changed"; //$NON-NLS-1$
+		} else if (seed.tabWidth() != tabWidth) {
+			reason = String.format("tab width %s, not %s", seed.tabWidth(), tabWidth); //$NON-NLS-1$
+		} else if (seed.scanner() != scanner) {
+			reason = "comment scanner differs"; //$NON-NLS-1$
+		} else if (seed.count != count) {
+			reason = "line count differs"; //$NON-NLS-1$
+		}
+		if (reason == null) return true;
+
+		Log.getDefault().log(Level.INFO, "warm-up seed rejected [%s]", reason); //$NON-NLS-1$
+		return false;
+	}
+
+	/**
+	 * Publishes a snapshot produced by the background analysis. Called from the analysis
+	 * thread.
+	 *
+	 * @param snap the snapshot
+	 */
+	void publish(IndentSnapshot snap) {
+		snapshot = snap;
+	}
+
+	/**
+	 * Adopts a snapshot produced by the background analysis, if of the submitted text and
+	 * current with the model settings. Lines changed since the submission are already analysed;
+	 * the remaining lines are taken from the snapshot, allowing for the lines shifted by the
+	 * changes. A snapshot that cannot be adopted is discarded and a new analysis requested.
+	 * Called on the UI thread.
+	 *
+	 * @param snap the snapshot
+	 */
+	void adopt(IndentSnapshot snap) {
+		if (!pending || refs == 0) return;
+
+		if (snap.stamp() != jobStamp || snap.tabWidth() != tabWidth || snap.scanner() != scanner || shifts < 0) {
+			rebuild();
+			return;
+		}
+
+		int delta = 0;
+		for (int idx = 0; idx < shifts; idx++) {
+			delta += shiftDelta[idx];
+		}
+
+		// line structure not as the document line tracker; analyse in place
+		if (snap.count != count - delta) {
+			pending = false;
+			for (int line = 0; line < count; line++) {
+				ensure(line);
+			}
+			blanks.rebuild(flags, count);
+			blocks.rebuild(stops, flags, count);
+			return;
+		}
+
+		for (int line = 0; line < count; line++) {
+			if ((flags[line] & PENDING) != 0) {
+				int src = shifts > 0 ? origin(line) : line;
+				widths[line] = snap.widths[src];
+				stops[line] = snap.stops[src];
+				flags[line] = snap.flags[src];
+			}
+		}
+		pending = false;
+		blanks.rebuild(flags, count);
+		blocks.rebuild(stops, flags, count);
+	}
+
+	// returns the document modification stamp, if known
+	private long stamp() {
+		if (doc instanceof IDocumentExtension4) return ((IDocumentExtension4) doc).getModificationStamp();
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+
+	// analyses the given line where not yet analysed
+	private void ensure(int line) {
+		if (pending && (flags[line] & PENDING) == 0) return;
+		try {
+			analyse(line);
+		} catch (BadLocationException e) {
+			widths[line] = 0;
+			stops[line] = 1;
+			flags[line] = BLANK;
+		}
+	}
+
+	/**
+	 * Shifts the line state beginning at the given line by the given number of lines.
+	 *
+	 * @param from  the first line to shift
+	 * @param delta the number of lines to shift; negative to remove lines
+	 */
+	private void shift(int from, int delta) {
+		if (delta == 0) return;
+
+		ensureCapacity(count + delta);
+		int len = count - from;
+		if (len > 0) {
+			System.arraycopy(widths, from, widths, from + delta, len);
+			System.arraycopy(stops, from, stops, from + delta, len);
+			System.arraycopy(flags, from, flags, from + delta, len);
+		}
+		count += delta;
+	}
+
+	private void ensureCapacity(int size) {
+		if (size <= widths.length) return;
+
+		int cap = Math.max(MIN_SIZE, Math.max(size, widths.length + (widths.length >> 1)));
+		widths = Arrays.copyOf(widths, cap);
+		stops = Arrays.copyOf(stops, cap);
+		flags = Arrays.copyOf(flags, cap);
+	}
+
+	private void analyse(int line) throws BadLocationException {
+		int offset = doc.getLineOffset(line);
+		int len = doc.getLineLength(line);
+		String delim = doc.getLineDelimiter(line);
+		if (delim != null) len -= delim.length();
+
+		chars.set(offset, len);
+		analyse(chars, tabWidth, scanner, widths, stops, flags, line);
+	}
+
+	/**
+	 * Analyses the leading indentation of the given line text into the given line state.
+	 *
+	 * @param chars    the line text, excluding any line delimiter
+	 * @param tabWidth the tab width
+	 * @param scanner  the comment scanner
+	 * @param widths   the line widths
+	 * @param stops    the line tab stop counts
+	 * @param flags    the line flags
+	 * @param line     the line index into the line state
+	 */
+	static void analyse(CharSequence chars, int tabWidth, ICommentScanner scanner, int[] widths, int[] stops,
+			byte[] flags, int line) {
+
+		int len = chars.length();
+		int flg = 0;
+		int col = 0;
+		int cnt = 1;
+		int last = 0; // char position of the last stop
+		int pos = 0;
+		for (; pos < len; pos++) {
+			char ch = chars.charAt(pos);
+			if (ch == ' ') {
+				flg |= SPACES;
+				col++;
+				if (col % tabWidth == 0) {
+					cnt++;
+					last = pos + 1;
+				}
+
+			} else if (ch == '\t') {
+				flg |= TABS;
+				col += tabWidth - (col % tabWidth);
+				cnt++;
+				last = pos + 1;
+
+			} else {
+				break;
+			}
+		}
+
+		if (isBlank(chars, pos, len)) {
+			flg |= BLANK;
+		} else if (scanner.isComment(chars, last)) {
+			flg |= COMMENT;
+		}
+
+		widths[line] = col;
+		stops[line] = cnt;
+		flags[line] = (byte) flg;
+	}
+
+	// returns whether the line characters from the given position are all whitespace
+	private static boolean isBlank(CharSequence chars, int from, int len) {
+		for (int pos = from; pos < len; pos++) {
+			if (!Character.isWhitespace(chars.charAt(pos))) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,129 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.model;
+
+import java.nio.CharBuffer;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import net.certiv.tools.indentguide.syntax.ICommentScanner;
+
+/**
+ * Immutable analysis of the leading indentation of each line of one version of a document,
+ * identified by the document modification stamp.
+ * <p>
+ * Snapshots are produced from a copy of the document text, off the UI thread, and may be read
+ * from any thread.
+ */
+public final class IndentSnapshot {
+
+	// lines between cancellation checks
+	private static final int CHECK = 4096;
+
+	private final long stamp;
+	private final int tabWidth;
+	private final ICommentScanner scanner;
+
+	final int count;
+	final int[] widths;
+	final int[] stops;
+	final byte[] flags;
+
+	private IndentSnapshot(long stamp, int tabWidth, ICommentScanner scanner, int count, int[] widths,
+			int[] stops, byte[] flags) {
+		this.stamp = stamp;
+		this.tabWidth = tabWidth;
+		this.scanner = scanner;
+		this.count = count;
+		this.widths = widths;
+		this.stops = stops;
+		this.flags = flags;
+	}
+
+	/**
+	 * Analyses the given document text. Lines are delimited by any of {@code CR}, {@code LF},
+	 * and {@code CRLF}.
+	 *
+	 * @param text     the document text
+	 * @param stamp    the document modification stamp corresponding to the text
+	 * @param tabWidth the tab width
+	 * @param scanner  the comment scanner
+	 * @param monitor  the progress monitor checked for cancellation
+	 * @return the snapshot, or {@code null} if canceled
+	 */
+	static IndentSnapshot analyse(String text, long stamp, int tabWidth, ICommentScanner scanner,
+			IProgressMonitor monitor) {
+
+		int count = 1;
+		for (int pos = 0, len = text.length(); pos < len; pos++) {
+			char ch = text.charAt(pos);
+			if (ch == '\n' || ch == '\r' && (pos + 1 == len || text.charAt(pos + 1) != '\n')) count++;
+		}
+
+		int[] widths = new int[count];
+		int[] stops = new int[count];
+		byte[] flags = new byte[count];
+
+		CharBuffer chars = CharBuffer.wrap(text);
+		int beg = 0;
+		for (int line = 0; line < count; line++) {
+			if (line % CHECK == 0 && monitor.isCanceled()) return null;
+
+			int end = beg;
+			while (end < text.length() && text.charAt(end) != '\n' && text.charAt(end) != '\r') {
+				end++;
+			}
+
+			chars.limit(end).position(beg);
+			IndentModel.analyse(chars, tabWidth, scanner, widths, stops, flags, line);
+
+			beg = end;
+			if (beg < text.length() && text.charAt(beg++) == '\r') {
+				if (beg < text.length() && text.charAt(beg) == '\n') beg++;
+			}
+		}
+
+		return new IndentSnapshot(stamp, tabWidth, scanner, count, widths, stops, flags);
+	}
+
+	/** Returns the modification stamp of the analysed document version. */
+	public long stamp() {
+		return stamp;
+	}
+
+	/** Returns the tab width used to derive the tab stops. */
+	public int tabWidth() {
+		return tabWidth;
+	}
+
+	/** Returns the scanner used to recognise comment lines. */
+	public ICommentScanner scanner() {
+		return scanner;
+	}
+
+	/** Returns the number of analysed lines. */
+	public int lineCount() {
+		return count;
+	}
+
+	/** Returns the visual width of the leading whitespace of the given line. */
+	public int width(int line) {
+		return widths[line];
+	}
+
+	/** Returns the number of tab stops, including the column zero stop, of the given line. */
+	public int stops(int line) {
+		return stops[line];
+	}
+
+	/** Returns the line flags of the given line. */
+	public int flags(int line) {
+		return flags[line];
+	}
+}
@@ -0,0 +1,148 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.swt.widgets.Display;
+
+import net.certiv.tools.indentguide.syntax.ICommentScanner;
+import net.certiv.tools.indentguide.util.Log;
+
+/**
+ * Low priority background job analysing, in parallel, copies of the text of documents not yet
+ * modeled. Each resulting snapshot is {@link IndentModel#seed seeded} on the UI thread, so the
+ * first connection of a model of the document adopts the snapshot rather than analysing.
+ * <p>
+ * The document sources are added on the UI thread before the job is scheduled. Resolving each
+ * document, selecting its comment scanner, copying its text and analysing it all run on a pool,
+ * bounded by the number of available processors.
+ */
+public class WarmupJob extends Job {
+
+	/** Source of a document to analyse, resolved on the job thread. */
+	public interface Source {
+
+		/**
+		 * Returns the document to analyse. Called on the job thread.
+		 *
+		 * @return the document, or {@code null} to skip
+		 * @throws CoreException if the document cannot be resolved
+		 */
+		IDocument document() throws CoreException;
+
+		/** Returns the tab width of the editor of the document. */
+		int tabWidth();
+
+		/**
+		 * Returns the comment scanner for the given document. Called on the job thread.
+		 *
+		 * @param doc the resolved document
+		 * @return the comment scanner, or {@code null} to skip
+		 */
+		ICommentScanner scanner(IDocument doc);
+	}
+
+	private final Display display;
+	private final List<Source> sources = new ArrayList<>();
+
+	/**
+	 * Creates a warm-up job.
+	 *
+	 * @param display the display of the UI thread seeding the results
+	 */
+	public WarmupJob(Display display) {
+		super("Indent Guide Warm-up");
+		this.display = display;
+		setSystem(true);
+		setPriority(Job.DECORATE);
+	}
+
+	/**
+	 * Adds the given document source for analysis. Call on the UI thread before scheduling.
+	 *
+	 * @param src the document source
+	 */
+	public void add(Source src) {
+		sources.add(src);
+	}
+
+	/** Returns the number of document sources added. */
+	public int size() {
+		return sources.size();
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		if (sources.isEmpty()) return Status.OK_STATUS;
+
+		int threads = Math.min(sources.size(), Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, getName());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (Source src : sources) {
+			tasks.add(() -> {
+				try {
+					if (!monitor.isCanceled()) warm(src, monitor);
+				} catch (CoreException | RuntimeException e) {
+					Log.getDefault().error(e);
+				}
+				return null;
+			});
+		}
+
+		try {
+			pool.invokeAll(tasks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdownNow();
+			sources.clear();
+		}
+		return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+	}
+
+	// analyses the document of the given source, and seeds the resulting snapshot
+	private void warm(Source src, IProgressMonitor monitor) throws CoreException {
+		IDocument doc = src.document();
+		if (!(doc instanceof IDocumentExtension4)) return;
+
+		IDocumentExtension4 ext = (IDocumentExtension4) doc;
+		long stamp = ext.getModificationStamp();
+		if (stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) return;
+
+		ICommentScanner scanner = src.scanner(doc);
+		if (scanner == null) return;
+
+		// a text changed while copied is either discarded here or rejected on adoption
+		String text = doc.get();
+		if (ext.getModificationStamp() != stamp) return;
+
+		IndentSnapshot snap = IndentSnapshot.analyse(text, stamp, Math.max(1, src.tabWidth()), scanner, monitor);
+		if (snap != null && !display.isDisposed()) {
+			display.asyncExec(() -> IndentModel.seed(doc, snap));
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.painter;
+
+import java.util.Arrays;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Shell;
+
+import net.certiv.tools.indentguide.util.Utils;
+
+/**
+ * Caches the font metrics needed to map a tab stop to its pixel offset from the start of a
+ * widget line. The cache is keyed by the widget font, tab width and display zoom, and is
+ * invalidated when any of these change.
+ * <p>
+ * For monospace fonts, the offset of stop {@code n} is computed arithmetically as
+ * {@code n * tabPixels}. For proportional fonts, offsets are not computable and are instead
+ * supplied by the caller, typically from a layout query, and retained until invalidated.
+ * <p>
+ * Leading whitespace is, by definition of the indent model, composed only of ASCII space and
+ * tab characters, so a stop offset is independent of the line it occurs on.
+ */
+public class FontMetricsCache {
+
+	/** Returned where a stop offset is not known. */
+	public static final int UNKNOWN = Integer.MIN_VALUE;
+
+	private static final String WIDE = "W"; // $NON-NLS-1$
+	private static final String NARROW = "i"; // $NON-NLS-1$
+
+	private final StyledText widget;
+	private final Shell shell;
+	private final Listener zoomListener = e -> zoom = e.detail;
+
+	// cache key
+	private Font font;
+	private int tabWidth;
+	private int zoom;
+	private int keyZoom;
+
+	private boolean monospace;
+	private int tabPixels;
+	private int[] stopPx = new int[16];
+
+	public FontMetricsCache(StyledText widget) {
+		this.widget = widget;
+		shell = widget.getShell();
+		shell.addListener(SWT.ZoomChanged, zoomListener);
+		zoom = widget.getMonitor().getZoom();
+	}
+
+	/**
+	 * Validates the cache against the current widget font, the given tab width, and the current
+	 * zoom, refreshing the cached metrics if any have changed.
+	 *
+	 * @param gc       the paint GC, used only to measure on refresh
+	 * @param tabWidth the current tab width
+	 * @return {@code true} if the cache was refreshed
+	 */
+	public boolean validate(GC gc, int tabWidth) {
+		Font cur = widget.getFont();
+		if (cur == font && tabWidth == this.tabWidth && zoom == keyZoom) return false;
+
+		font = cur;
+		this.tabWidth = tabWidth;
+		keyZoom = zoom;
+		Arrays.fill(stopPx, UNKNOWN);
+
+		Font prior = gc.getFont();
+		gc.setFont(cur);
+		int space = gc.stringExtent(Utils.SPACE).x;
+		tabPixels = gc.stringExtent(Utils.SPACE.repeat(tabWidth)).x;
+		monospace = tabPixels == space * tabWidth
+				&& gc.stringExtent(WIDE).x == gc.stringExtent(NARROW).x;
+		gc.setFont(prior);
+		return true;
+	}
+
+	/** Returns the display zoom of the cached metrics. */
+	public int zoom() {
+		return keyZoom;
+	}
+
+	/** Returns {@code true} if the current font is monospaced. */
+	public boolean isMonospace() {
+		return monospace;
+	}
+
+	/**
+	 * Returns the pixel offset of the given stop from the start of its line.
+	 *
+	 * @param stop the stop index (0..n)
+	 * @return the stop offset, or {@link #UNKNOWN} if not known
+	 */
+	public int stopOffset(int stop) {
+		if (monospace) return stop * tabPixels;
+		return stop < stopPx.length ? stopPx[stop] : UNKNOWN;
+	}
+
+	/**
+	 * Records the pixel offset of the given stop, as determined by the caller.
+	 *
+	 * @param stop the stop index (0..n)
+	 * @param px   the stop offset
+	 */
+	public void put(int stop, int px) {
+		if (stop >= stopPx.length) {
+			int len = stopPx.length;
+			stopPx = Arrays.copyOf(stopPx, Math.max(stop + 1, len << 1));
+			Arrays.fill(stopPx, len, stopPx.length, UNKNOWN);
+		}
+		stopPx[stop] = px;
+	}
+
+	public void dispose() {
+		if (!shell.isDisposed()) {
+			shell.removeListener(SWT.ZoomChanged, zoomListener);
+		}
+	}
+}
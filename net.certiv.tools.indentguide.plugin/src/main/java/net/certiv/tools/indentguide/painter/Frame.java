@@ -0,0 +1,146 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.painter;
+
+import java.util.Arrays;
+
+/**
+ * Reusable store of the guide geometry of a single paint frame.
+ * <p>
+ * The geometry is held in primitive arrays owned by the painter. The arrays grow as needed,
+ * but are otherwise only reset at the start of each frame, so steady state painting allocates
+ * nothing.
+ */
+public class Frame {
+
+	private static final int MIN_SIZE = 64;
+
+	/** Stop flag: the guide ascends into the line spacing above the line. */
+	public static final int ASC = 1;
+
+	/** Number of lines in the frame. */
+	private int lines;
+	/** Top pixel per line. */
+	private int[] lineY = new int[MIN_SIZE];
+	/** Height per line, excluding line spacing. */
+	private int[] lineHt = new int[MIN_SIZE];
+	/** Index of the first stop per line; the stops of line {@code n} end at {@code n+1}. */
+	private int[] stopBeg = new int[MIN_SIZE + 1];
+
+	/** Number of stops in the frame. */
+	private int stops;
+	/** X-location per stop. */
+	private int[] stopX = new int[MIN_SIZE];
+	/** Stop flags per stop. */
+	private int[] stopFlags = new int[MIN_SIZE];
+	/** Nesting depth per stop, being the tab stop index. */
+	private int[] stopDepth = new int[MIN_SIZE];
+
+	/** Clears the frame content. */
+	public void reset() {
+		lines = 0;
+		stops = 0;
+	}
+
+	/**
+	 * Begins a new frame line. Subsequently added stops belong to this line.
+	 *
+	 * @param y  the top pixel of the line
+	 * @param ht the line height, excluding line spacing
+	 */
+	public void addLine(int y, int ht) {
+		if (lines + 1 >= lineY.length) {
+			int cap = lineY.length << 1;
+			lineY = Arrays.copyOf(lineY, cap);
+			lineHt = Arrays.copyOf(lineHt, cap);
+			stopBeg = Arrays.copyOf(stopBeg, cap + 1);
+		}
+		lineY[lines] = y;
+		lineHt[lines] = ht;
+		stopBeg[lines] = stops;
+		lines++;
+		stopBeg[lines] = stops;
+	}
+
+	/**
+	 * Adds a stop to the current frame line.
+	 *
+	 * @param x   the stop x-location
+	 * @param flg the stop flags
+	 */
+	public void addStop(int x, int flg) {
+		addStop(x, flg, 0);
+	}
+
+	/**
+	 * Adds a stop to the current frame line.
+	 *
+	 * @param x     the stop x-location
+	 * @param flg   the stop flags
+	 * @param depth the stop nesting depth
+	 */
+	public void addStop(int x, int flg, int depth) {
+		if (stops >= stopX.length) {
+			int cap = stopX.length << 1;
+			stopX = Arrays.copyOf(stopX, cap);
+			stopFlags = Arrays.copyOf(stopFlags, cap);
+			stopDepth = Arrays.copyOf(stopDepth, cap);
+		}
+		stopX[stops] = x;
+		stopFlags[stops] = flg;
+		stopDepth[stops] = depth;
+		stops++;
+		stopBeg[lines] = stops;
+	}
+
+	/** Returns the number of lines in the frame. */
+	public int lines() {
+		return lines;
+	}
+
+	/** Returns the top pixel of the given frame line. */
+	public int lineY(int line) {
+		return lineY[line];
+	}
+
+	/** Returns the height of the given frame line. */
+	public int lineHeight(int line) {
+		return lineHt[line];
+	}
+
+	/** Returns the index of the first stop of the given frame line. */
+	public int stopBeg(int line) {
+		return stopBeg[line];
+	}
+
+	/** Returns the index following the last stop of the given frame line. */
+	public int stopEnd(int line) {
+		return stopBeg[line + 1];
+	}
+
+	/** Returns the number of stops in the frame. */
+	public int stops() {
+		return stops;
+	}
+
+	/** Returns the x-location of the given stop. */
+	public int stopX(int stop) {
+		return stopX[stop];
+	}
+
+	/** Returns the flags of the given stop. */
+	public int stopFlags(int stop) {
+		return stopFlags[stop];
+	}
+
+	/** Returns the nesting depth of the given stop. */
+	public int stopDepth(int stop) {
+		return stopDepth[stop];
+	}
+}
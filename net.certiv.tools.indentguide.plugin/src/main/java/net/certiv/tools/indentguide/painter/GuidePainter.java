@@ -8,24 +8,39 @@
  *****************************************************************************/
 package net.certiv.tools.indentguide.painter;
 
-import org.eclipse.jface.preference.IPreferenceStore;
+import java.util.Arrays;
+
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.IPaintPositionManager;
 import org.eclipse.jface.text.IPainter;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.CaretListener;
 import org.eclipse.swt.custom.StyledText;
-import org.eclipse.swt.custom.StyledTextContent;
 import org.eclipse.swt.events.PaintEvent;
 import org.eclipse.swt.events.PaintListener;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.GC;
-import org.eclipse.swt.graphics.LineAttributes;
-import org.eclipse.swt.graphics.Point;
-
-import net.certiv.tools.indentguide.Activator;
-import net.certiv.tools.indentguide.preferences.Pref;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Listener;
+
+import net.certiv.tools.indentguide.metrics.PaintMetrics;
+import net.certiv.tools.indentguide.metrics.PaintStats;
+import net.certiv.tools.indentguide.model.BlockIndex;
+import net.certiv.tools.indentguide.model.IModelListener;
+import net.certiv.tools.indentguide.model.IndentModel;
+import net.certiv.tools.indentguide.preferences.Profiles;
+import net.certiv.tools.indentguide.preferences.RenderConfig;
+import net.certiv.tools.indentguide.syntax.BlockCommentScanner;
+import net.certiv.tools.indentguide.syntax.ICommentScanner;
 import net.certiv.tools.indentguide.util.Utils;
 
 /**
@@ -36,11 +51,16 @@ import net.certiv.tools.indentguide.util.Utils;
  */
 public class GuidePainter implements IPainter, PaintListener {
 
+	// number of viewports of lines held by the line cache
+	private static final int WINDOW = 4;
+	// pixel offset of the first stop, clear of the widget edge
+	private static final int STOP0 = 1;
+
 	private ITextViewer viewer;
 	private StyledText widget;
 
 	private boolean advanced;
-	private IPreferenceStore store;
+	private RenderConfig render;
 
 	private boolean active;
 	private int lineAlpha;
@@ -48,26 +68,125 @@ public class GuidePainter implements IPainter, PaintListener {
 	private int lineWidth;
 	private int lineShift;
 	private Color lineColor;
+	private Color[] depthColors;	// null unless drawing in depth colors
+	private final SharedResources resources;
 	private boolean drawLeadEdge;
 	private boolean drawBlankLn;
 	private boolean drawComment;
-
-	private Line prevNb; // prior non-blank line
-	private Line currLn; // current line
-	private Line nextNb; // next non-blank line
+	private boolean highlightScope;
+	private int redrawDelay;
+	private boolean largeFile;
+	// whether the preferences are to be reloaded before the next paint
+	private boolean stale;
+
+	private IndentModel model;
+	private final ICommentScanner scanner;
+	// widget tab width last applied to the model
+	private int modelTabs;
+
+	// document lines with guide changes pending redraw; -1 if none
+	private int dmgBeg = -1;
+	private int dmgEnd = -1;
+	private final IModelListener damage = (beg, end, delta) -> {
+		if (dmgBeg < 0) {
+			dmgBeg = beg;
+			dmgEnd = end;
+		} else {
+			dmgBeg = Math.min(dmgBeg, beg);
+			dmgEnd = Math.max(dmgEnd + Math.max(delta, 0), end);
+		}
+		shiftScope(beg, end, delta);
+	};
+	// whether a damage redraw is scheduled
+	private boolean redrawQueued;
+	private final Runnable redrawer = () -> {
+		redrawQueued = false;
+		if (widget != null && !widget.isDisposed() && viewer.getDocument() != null) {
+			redrawDamage(viewer.getDocument());
+		}
+	};
+
+	// block containing the caret, as its depth and first & last document lines; depth 0 if none
+	private int scopeDepth;
+	private int scopeBeg;
+	private int scopeEnd;
+	// whether the scope is to be re-found before the next paint
+	private boolean scopeStale;
+	// widget area of the scope highlight, located for the scroll position given by areaTop and
+	// areaLeft; areaW is 0 if not shown
+	private int areaX;
+	private int areaY;
+	private int areaW;
+	private int areaH;
+	private int areaTop;
+	private int areaLeft;
+	// whether the area is to be re-located before the next paint
+	private boolean areaStale = true;
+	private final CaretListener caret = e -> updateScope();
+	private final Frame frame = new Frame();
+	private final Segments segments = new Segments();
+	private final PaintStats stats;
+	// non-blank line lookups of the current paint
+	private int lookups;
+	private FontMetricsCache metrics;
+	private ProjectionMap projection;
+
+	// optional rendered strip cache; serial of the loaded preferences
+	private StripCache strips;
+	private int config;
+	// computed guide stops of recently painted lines
+	private final LineCache lines = new LineCache();
+	// widget client area height; updated on resize
+	private int clientHeight;
+	private final Listener invalidator = e -> {
+		if (e.type == SWT.Resize) clientHeight = widget.getClientArea().height;
+		areaStale = true;
+		projection.invalidate();
+		lines.clear();
+		if (strips != null) strips.clear();
+	};
 
 	/**
-	 * Creates a new painter for the given text viewer.
+	 * Creates a new painter for the given text viewer, recognising C-style block comments.
 	 *
 	 * @param viewer the text viewer the painter should be attached to
 	 */
 	public GuidePainter(ITextViewer viewer) {
+		this(viewer, BlockCommentScanner.INSTANCE);
+	}
+
+	/**
+	 * Creates a new painter for the given text viewer.
+	 *
+	 * @param viewer  the text viewer the painter should be attached to
+	 * @param scanner the scanner recognising the comment lines of the viewer content
+	 */
+	public GuidePainter(ITextViewer viewer, ICommentScanner scanner) {
+		this(viewer, scanner, Profiles.getDefault().global());
+	}
+
+	/**
+	 * Creates a new painter for the given text viewer.
+	 *
+	 * @param viewer  the text viewer the painter should be attached to
+	 * @param scanner the scanner recognising the comment lines of the viewer content
+	 * @param render  the compiled render settings
+	 */
+	public GuidePainter(ITextViewer viewer, ICommentScanner scanner, RenderConfig render) {
 		this.viewer = viewer;
+		this.render = render;
+		this.scanner = scanner;
+		stats = new PaintStats(Utils.nameOf(viewer));
+		PaintMetrics.getDefault().add(stats);
 		widget = viewer.getTextWidget();
-		advanced = Utils.setAdvanced(widget);
-		store = Activator.getDefault().getPreferenceStore();
-
-		loadPrefs();
+		resources = SharedResources.of(widget.getDisplay());
+		metrics = new FontMetricsCache(widget);
+		projection = new ProjectionMap(viewer);
+		widget.addListener(SWT.Modify, invalidator);
+		widget.addListener(SWT.Resize, invalidator);
+		widget.addCaretListener(caret);
+		clientHeight = widget.getClientArea().height;
+		configure();
 	}
 
 	@Override
@@ -86,20 +205,63 @@ public class GuidePainter implements IPainter, PaintListener {
 		} else if (reason == CONFIGURATION || reason == INTERNAL) {
 			redrawAll();
 
-		} else if (reason == TEXT_CHANGE) { // redraw current line only
-			try {
-				IRegion region = doc
-						.getLineInformationOfOffset(Utils.docOffset(viewer, widget.getCaretOffset()));
-				int offset = Utils.widgetOffset(viewer, region.getOffset());
-				int cnt = widget.getCharCount();
-				int len = Math.min(region.getLength(), cnt - offset);
-				if (offset >= 0 && len > 0) {
-					widget.redrawRange(offset, len, true);
-				}
-			} catch (BadLocationException e) {}
+		} else if (reason == TEXT_CHANGE) { // redraw lines with changed guides only
+			if (redrawDelay > 0) {
+				scheduleDamage();
+			} else {
+				redrawDamage(doc);
+			}
+		}
+	}
+
+	/**
+	 * Schedules a redraw of the damaged lines at the end of the redraw delay. Damage reported by
+	 * the model within the delay is merged into the pending range, so a burst of edits costs a
+	 * single redraw; the delay is not restarted by later edits.
+	 */
+	private void scheduleDamage() {
+		if (redrawQueued || dmgBeg < 0) return;
+
+		redrawQueued = true;
+		widget.getDisplay().timerExec(redrawDelay, redrawer);
+	}
+
+	private void cancelDamage() {
+		if (redrawQueued) {
+			redrawQueued = false;
+			widget.getDisplay().timerExec(-1, redrawer);
 		}
 	}
 
+	/**
+	 * Redraws the widget lines corresponding to the document lines whose guides have changed
+	 * since the last redraw, as reported by the indent model.
+	 *
+	 * @param doc the current viewer document
+	 */
+	private void redrawDamage(IDocument doc) {
+		if (dmgBeg < 0) return;
+
+		int beg = dmgBeg;
+		int end = Math.min(dmgEnd, doc.getNumberOfLines() - 1);
+		dmgBeg = dmgEnd = -1;
+		if (beg > end) return;
+
+		try {
+			int offset = doc.getLineOffset(beg);
+			IRegion last = doc.getLineInformation(end);
+			IRegion range = Utils.widgetRange(viewer, offset, last.getOffset() + last.getLength() - offset);
+			if (range == null) return;
+
+			int begLine = widget.getLineAtOffset(range.getOffset());
+			int endLine = widget.getLineAtOffset(range.getOffset() + range.getLength());
+			int y = widget.getLinePixel(begLine);
+			int h = widget.getLinePixel(endLine + 1) - y;
+			if (h > 0) widget.redraw(0, y, widget.getClientArea().width, h, false);
+
+		} catch (BadLocationException | IllegalArgumentException e) {}
+	}
+
 	/** Request a redraw of all visible content. */
 	public void redrawAll() {
 		widget.redraw();
@@ -108,40 +270,58 @@ public class GuidePainter implements IPainter, PaintListener {
 	@Override
 	public void paintControl(PaintEvent evt) {
 		if (widget != null) {
-			handleDrawRequest(evt.gc, evt.x, evt.y, evt.width, evt.height);
+			if (stale) configure();
+			if (scopeStale) updateScope();
+
+			long start = System.nanoTime();
+			lookups = 0;
+			int lines = handleDrawRequest(evt.gc, evt.x, evt.y, evt.width, evt.height);
+			stats.record(System.nanoTime() - start, lines, lines > 0 ? frame.stops() : 0, lookups);
 		}
 	}
 
-	// Draw characters in view range.
-	private void handleDrawRequest(GC gc, int x, int y, int w, int h) {
+	// Draw characters in view range. Returns the number of lines processed.
+	private int handleDrawRequest(GC gc, int x, int y, int w, int h) {
 		int begLine = widget.getLineIndex(y);
 		int endLine = widget.getLineIndex(y + h - 1);
 
 		// Activator.log("draw request @(%s:%s)", begLine + 1, endLine + 1);
 
 		if (begLine <= endLine && begLine < widget.getLineCount()) {
-			Color color = gc.getForeground();
-			LineAttributes attributes = gc.getLineAttributes();
-
-			gc.setForeground(lineColor);
-			gc.setLineStyle(lineStyle);
-			gc.setLineWidth(lineWidth);
-			if (advanced) {
-				int alpha = gc.getAlpha();
-				gc.setAlpha(lineAlpha);
-				drawLineRange(gc, begLine, endLine, x, w);
-				gc.setAlpha(alpha);
-			} else {
-				drawLineRange(gc, begLine, endLine, x, w);
+			if (strips != null && drawStrip(gc)) {
+				drawScope(gc);
+				return 0;
 			}
 
-			gc.setForeground(color);
-			gc.setLineAttributes(attributes);
+			frame.reset();
+			drawLineRange(gc, begLine, endLine, x, w);
+			if (frame.stops() > 0) {
+				int style = gc.getLineStyle();
+				int width = gc.getLineWidth();
+
+				gc.setForeground(lineColor);
+				gc.setLineStyle(lineStyle);
+				gc.setLineWidth(lineWidth);
+				if (advanced) {
+					int alpha = gc.getAlpha();
+					gc.setAlpha(lineAlpha);
+					drawFrame(gc);
+					gc.setAlpha(alpha);
+				} else {
+					drawFrame(gc);
+				}
+
+				gc.setLineStyle(style);
+				gc.setLineWidth(width);
+			}
+			drawScope(gc);
+			return endLine - begLine + 1;
 		}
+		return 0;
 	}
 
 	/**
-	 * Draw the given line range.
+	 * Collects the guide geometry of the given line range into the frame.
 	 *
 	 * @param gc      the GC
 	 * @param begLine first line number
@@ -150,142 +330,556 @@ public class GuidePainter implements IPainter, PaintListener {
 	 * @param w       the width of the drawing range
 	 */
 	private void drawLineRange(GC gc, int begLine, int endLine, int x, int w) {
-		int tabWidth = widget.getTabs();
-		StyledTextContent content = widget.getContent();
-
-		prevNb = null;
-		currLn = null;
-		nextNb = null;
+		IDocument doc = viewer.getDocument();
+		if (!connect(doc)) return;
+
+		int tabWidth = model.tabWidth();
+		int spacing = widget.getLineSpacing();
+		metrics.validate(gc, tabWidth);
+		projection.validate();
+
+		long stamp = doc instanceof IDocumentExtension4 ? ((IDocumentExtension4) doc).getModificationStamp()
+				: IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+		boolean cached = stamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP && !model.isPending();
+		if (cached) {
+			int window = clientHeight / Math.max(widget.getLineHeight(), 1) * WINDOW;
+			lines.validate(stamp, widget.getFont(), tabWidth, metrics.zoom(), config, window);
+		}
 
 		for (int line = begLine; line <= endLine; line++) {
-			int offset = widget.getOffsetAtLine(line);
-			int height = widget.getLineHeight(offset);
-			int spacing = widget.getLineSpacing();
+			if (projection.isFolded(line)) continue;
+
+			if (cached && lines.contains(line)) {
+				int y = widget.getLinePixel(line);
+				int lineX = widget.getLeftMargin() - widget.getHorizontalPixel() + widget.getLineIndent(line);
+				frame.addLine(y, widget.getLinePixel(line + 1) - y - spacing);
+				lines.replay(line, frame, lineX);
+				continue;
+			}
 
-			int docLine = content.getLineAtOffset(offset); // 0..n
+			int docLine = projection.docLine(line);
+			if (docLine < 0 || docLine >= model.lineCount()) continue;
 
-			if (!Utils.isFolded(viewer, docLine)) {
-				prevNb = prevNonblankLine(line, tabWidth);
-				currLn = new Line(widget, line, tabWidth);
+			boolean blank = model.isBlank(docLine);
+			boolean comment = model.isComment(docLine);
+			int beg = model.width(docLine);
+			int prevNb = model.prevNonblank(docLine);
+			lookups++;
+			int prevEnd = prevNb < 0 ? 0 : model.endStop(prevNb);
 
-				if (drawBlankLn) {
-					if (currLn.blank) {
-						nextNb = nextNonblankLine(line, tabWidth);
+			int src = docLine; // line defining the stop locations
+			int tabs = model.stops(docLine);
+			int delta = 0;
 
-						// change in dents: - <-> +
-						currLn.delta = nextNb.tabs() - prevNb.tabs();
+			if (drawBlankLn && blank) {
+				int nextNb = model.nextNonblank(docLine);
+				lookups++;
+				int prevTabs = prevNb < 0 ? 1 : model.stops(prevNb);
+				int nextTabs = nextNb < 0 ? 1 : model.stops(nextNb);
 
-						// capture prevLn stop locations
-						currLn.stops.clear();
-						currLn.stops.addAll(prevNb.stops);
+				// change in dents: - <-> +
+				delta = nextTabs - prevTabs;
 
-						// log(currLn.delta, prevNb, currLn, nextNb);
+				// capture prevLn stop locations
+				src = prevNb;
+				tabs = prevTabs;
 
-						// adjust stops dependent on delta
-						if (currLn.delta < 0 && currLn.tabs() > 1) {
-							currLn.stops.removeLast(); // shift in by one
-						}
-					}
+				// adjust stops dependent on delta
+				if (delta < 0 && tabs > 1) {
+					tabs--; // shift in by one
 				}
+			}
 
-				boolean only = currLn.tabs(1);
-				boolean multi = currLn.tabs() > 1;
-				boolean zero = currLn.delta == 0;
+			boolean only = tabs == 1;
+			boolean multi = tabs > 1;
+			boolean zero = delta == 0;
 
-				for (Pos stop : currLn.stops) {
-					boolean first = stop == currLn.stops.peekFirst();
-					boolean last = stop == currLn.stops.peekLast();
+			int y = widget.getLinePixel(line);
+			int lineX = widget.getLeftMargin() - widget.getHorizontalPixel() + widget.getLineIndent(line);
+			frame.addLine(y, widget.getLinePixel(line + 1) - y - spacing);
+			if (cached) lines.begin(line);
 
-					if (currLn.comment) {
-						// skip first visible character
-						if (stop.col == currLn.beg) continue;
+			for (int idx = 0; idx < tabs; idx++) {
+				boolean first = idx == 0;
+				boolean last = idx == tabs - 1;
+				int col = idx * tabWidth;
 
-						// skip first where only unless drawComment or drawLeadEdge
-						if (only && !(drawComment || drawLeadEdge)) continue;
+				if (comment) {
+					// skip first visible character
+					if (col == beg) continue;
 
-						// skip first where not only unless drawLeadEdge
-						if (first && !only && !drawLeadEdge) continue;
+					// skip first where only unless drawComment or drawLeadEdge
+					if (only && !(drawComment || drawLeadEdge)) continue;
 
-						// skip last where !only unless drawComment
-						if (last && !only && !drawComment) continue;
+					// skip first where not only unless drawLeadEdge
+					if (first && !only && !drawLeadEdge) continue;
 
-					} else if (currLn.blank) {
-						// skip first where only and zero
-						if (first && only && zero) continue;
+					// skip last where !only unless drawComment
+					if (last && !only && !drawComment) continue;
 
-						// skip last where not only and zero
-						if (last && !only && zero) continue;
+				} else if (blank) {
+					// skip first where only and zero
+					if (first && only && zero) continue;
 
-						// skip first where not zero unless drawBlankLn and drawLeadEdge
-						if (first && !zero && !(drawBlankLn && drawLeadEdge)) continue;
+					// skip last where not only and zero
+					if (last && !only && zero) continue;
 
-						// skip first where zero and multi unless drawBlankLn and
-						// drawLeadEdge
-						if (first && zero && multi && !(drawBlankLn && drawLeadEdge)) continue;
+					// skip first where not zero unless drawBlankLn and drawLeadEdge
+					if (first && !zero && !(drawBlankLn && drawLeadEdge)) continue;
 
-					} else {
-						// skip first visible character
-						if (stop.col == currLn.beg) continue;
+					// skip first where zero and multi unless drawBlankLn and
+					// drawLeadEdge
+					if (first && zero && multi && !(drawBlankLn && drawLeadEdge)) continue;
 
-						// skip first unless drawLeadEdge
-						if (first && !drawLeadEdge) continue;
-					}
+				} else {
+					// skip first visible character
+					if (col == beg) continue;
 
-					boolean asc = stop.col >= prevNb.endStop();
-					Point pos = widget.getLocationAtOffset(offset);
-					draw(gc, pos, stop.loc, spacing, height, asc);
+					// skip first unless drawLeadEdge
+					if (first && !drawLeadEdge) continue;
 				}
+
+				int loc = stopOffset(doc, src, idx);
+				if (loc == FontMetricsCache.UNKNOWN) continue;
+
+				int flg = col >= prevEnd ? Frame.ASC : 0;
+				frame.addStop(lineX + loc + lineShift, flg, idx);
+				if (cached) lines.add(loc + lineShift, flg, idx);
+			}
+		}
+	}
+
+	/**
+	 * Draws the guides of the full client area from the strip cache, rendering and caching the
+	 * strip on a cache miss.
+	 *
+	 * @param gc the paint GC
+	 * @return {@code true} if drawn; {@code false} if strips are not usable for the document
+	 */
+	private boolean drawStrip(GC gc) {
+		IDocument doc = viewer.getDocument();
+		if (!(doc instanceof IDocumentExtension4)) return false;
+
+		long stamp = ((IDocumentExtension4) doc).getModificationStamp();
+		if (stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) return false;
+
+		int tabWidth = widget.getTabs();
+		metrics.validate(gc, tabWidth);
+		StripCache.Strip strip = strips.lookup(widget.getTopPixel(), widget.getHorizontalPixel(), stamp,
+				widget.getFont(), tabWidth, metrics.zoom(), config);
+
+		if (strip == null) {
+			Rectangle area = widget.getClientArea();
+			if (area.width <= 0 || area.height <= 0) return false;
+
+			frame.reset();
+			drawLineRange(gc, widget.getLineIndex(0), widget.getLineIndex(area.height - 1), 0, area.width);
+
+			Image image = frame.stops() > 0 ? renderStrip(area.width, area.height) : null;
+			long bytes = image == null ? 0 : 4L * area.width * area.height * metrics.zoom() * metrics.zoom() / 10000;
+			if (image != null) gc.drawImage(image, 0, 0);
+			if (!strips.store(image, bytes) && image != null) {
+				image.dispose();
+			}
+			return true;
+		}
+
+		if (strip.image != null) gc.drawImage(strip.image, 0, 0);
+		return true;
+	}
+
+	/**
+	 * Renders the current frame into a transparent image of the given size. The guides are
+	 * first drawn, using the platform line rasterization, into an opaque mask image; the mask
+	 * then defines the alpha of a solid image in the guide color.
+	 */
+	private Image renderStrip(int width, int height) {
+		Display display = widget.getDisplay();
+		Image mask = new Image(display, width, height);
+		GC mgc = new GC(mask);
+		try {
+			mgc.setBackground(display.getSystemColor(SWT.COLOR_BLACK));
+			mgc.fillRectangle(0, 0, width, height);
+			mgc.setForeground(display.getSystemColor(SWT.COLOR_WHITE));
+			mgc.setLineStyle(lineStyle);
+			mgc.setLineWidth(lineWidth);
+			draw(mgc);
+		} finally {
+			mgc.dispose();
+		}
+
+		ImageData src = mask.getImageData();
+		mask.dispose();
+
+		int bg = blackPixel(src.palette);
+		int w = src.width;
+		int h = src.height;
+
+		ImageData data = new ImageData(w, h, 24, new PaletteData(0xFF0000, 0xFF00, 0xFF));
+		data.alphaData = new byte[w * h];
+		byte alpha = (byte) (advanced ? lineAlpha : 255);
+
+		int[] row = new int[w];
+		int[] fill = new int[w];
+		Arrays.fill(fill, data.palette.getPixel(lineColor.getRGB()));
+		for (int y = 0; y < h; y++) {
+			src.getPixels(0, y, w, row, 0);
+			data.setPixels(0, y, w, fill, 0);
+			for (int x = 0, off = y * w; x < w; x++) {
+				if (row[x] != bg) data.alphaData[off + x] = alpha;
 			}
 		}
+		return new Image(display, data);
+	}
+
+	private static int blackPixel(PaletteData palette) {
+		if (palette.isDirect) return 0;
+
+		RGB[] rgbs = palette.getRGBs();
+		for (int idx = 0; idx < rgbs.length; idx++) {
+			RGB rgb = rgbs[idx];
+			if (rgb.red == 0 && rgb.green == 0 && rgb.blue == 0) return idx;
+		}
+		return 0;
 	}
 
-	private void draw(GC gc, Point pos, int loc, int sp, int ht, boolean asc) {
-		pos.x += loc + lineShift;
-		if (asc) {
-			gc.drawLine(pos.x, pos.y - sp, pos.x, pos.y + ht + sp);
+	// draws the frame guides in the line color or, if selected, the depth colors
+	private void drawFrame(GC gc) {
+		if (depthColors != null) {
+			drawDepths(gc);
 		} else {
-			gc.drawLine(pos.x, pos.y, pos.x, pos.y + ht + sp);
+			draw(gc);
+		}
+	}
+
+	// draws the frame guides, one draw call per vertically contiguous segment
+	private void draw(GC gc) {
+		segments.coalesce(frame, widget.getLineSpacing());
+		for (int seg = 0, cnt = segments.count(); seg < cnt; seg++) {
+			int x = segments.x(seg);
+			gc.drawLine(x, segments.y1(seg), x, segments.y2(seg));
+		}
+	}
+
+	// draws the frame guides grouped by depth color; the foreground is set once per used color
+	private void drawDepths(GC gc) {
+		segments.coalesce(frame, widget.getLineSpacing());
+		segments.group(depthColors.length);
+		for (int grp = 0; grp < depthColors.length; grp++) {
+			int beg = segments.groupBeg(grp);
+			int end = segments.groupEnd(grp);
+			if (beg == end) continue;
+
+			gc.setForeground(depthColors[grp]);
+			for (int idx = beg; idx < end; idx++) {
+				int seg = segments.order(idx);
+				int x = segments.x(seg);
+				gc.drawLine(x, segments.y1(seg), x, segments.y2(seg));
+			}
+		}
+	}
+
+	/**
+	 * Draws the guide of the block containing the caret, opaque and one pixel wider than the
+	 * other guides, in the color of its depth.
+	 *
+	 * @param gc the paint GC
+	 */
+	private void drawScope(GC gc) {
+		if (scopeDepth == 0) return;
+		validateArea();
+		if (areaW == 0) return;
+
+		int style = gc.getLineStyle();
+		int width = gc.getLineWidth();
+
+		gc.setForeground(depthColors != null ? depthColors[(scopeDepth - 1) % depthColors.length] : lineColor);
+		gc.setLineStyle(SWT.LINE_SOLID);
+		gc.setLineWidth(lineWidth + 1);
+		int x = areaX + areaW / 2;
+		gc.drawLine(x, areaY, x, areaY + areaH - 1);
+
+		gc.setLineStyle(style);
+		gc.setLineWidth(width);
+	}
+
+	/**
+	 * Finds the block containing the caret. Where changed, redraws the areas of the prior and
+	 * new scope highlights only.
+	 */
+	private void updateScope() {
+		scopeStale = false;
+		int depth = scopeDepth;
+		int beg = scopeBeg;
+		int end = scopeEnd;
+		if (depth != 0) validateArea();
+		int x = areaX;
+		int y = areaY;
+		int w = depth != 0 ? areaW : 0;
+		int h = areaH;
+
+		findScope();
+		if (depth == scopeDepth && beg == scopeBeg && end == scopeEnd) return;
+
+		locateArea();
+		if (w > 0) widget.redraw(x, y, w, h, false);
+		if (areaW > 0) widget.redraw(areaX, areaY, areaW, areaH, false);
+	}
+
+	// finds the innermost block containing the caret line, using the block index of the model
+	private void findScope() {
+		scopeDepth = 0;
+		if (!highlightScope || !active || model == null || model.isPending()) return;
+
+		IDocument doc = viewer.getDocument();
+		if (doc == null || model.getDocument() != doc) return;
+
+		try {
+			int offset = Utils.docOffset(viewer, widget.getCaretOffset());
+			if (offset < 0) return;
+
+			int line = doc.getLineOfOffset(offset);
+			if (line >= model.lineCount()) return;
+
+			int depth = model.depth(line);
+			if (depth == 1 && !drawLeadEdge) return; // column one guide not drawn
+
+			BlockIndex blocks = model.blocks();
+			int block = blocks.find(depth, line);
+			if (block < 0) return;
+
+			scopeDepth = depth;
+			scopeBeg = blocks.blockBeg(depth, block);
+			scopeEnd = blocks.blockEnd(depth, block);
+
+		} catch (BadLocationException e) {}
+	}
+
+	// tracks a model change: shifts the scope lines by the given line delta, and marks the scope
+	// to be re-found
+	private void shiftScope(int beg, int end, int delta) {
+		if (scopeDepth == 0) return;
+
+		if (scopeBeg > end - delta) {
+			scopeBeg += delta;
+			scopeEnd += delta;
+		} else if (scopeEnd >= beg) {
+			scopeEnd = Math.max(scopeEnd + delta, scopeBeg);
+		}
+		scopeStale = true;
+	}
+
+	// re-locates the scope highlight area where stale or scrolled since located
+	private void validateArea() {
+		if (areaStale || areaTop != widget.getTopPixel() || areaLeft != widget.getHorizontalPixel()) {
+			locateArea();
+		}
+	}
+
+	/**
+	 * Locates the widget area of the scope highlight, being the stop column of the scope depth
+	 * over the visible lines of the scope block. The area width is 0 if not shown.
+	 */
+	private void locateArea() {
+		areaStale = false;
+		areaTop = widget.getTopPixel();
+		areaLeft = widget.getHorizontalPixel();
+		areaW = 0;
+		if (scopeDepth == 0) return;
+
+		IDocument doc = viewer.getDocument();
+		try {
+			int offset = doc.getLineOffset(scopeBeg);
+			IRegion last = doc.getLineInformation(scopeEnd);
+			IRegion range = Utils.widgetRange(viewer, offset, last.getOffset() + last.getLength() - offset);
+			if (range == null) return;
+
+			int loc = stopOffset(doc, scopeBeg, scopeDepth - 1);
+			if (loc == FontMetricsCache.UNKNOWN) return;
+
+			int begLine = widget.getLineAtOffset(range.getOffset());
+			int endLine = widget.getLineAtOffset(range.getOffset() + range.getLength());
+			int x = widget.getLeftMargin() - widget.getHorizontalPixel() + widget.getLineIndent(begLine) + loc
+					+ lineShift;
+			int y = widget.getLinePixel(begLine);
+			int h = widget.getLinePixel(endLine + 1) - widget.getLineSpacing() - y;
+			int w = lineWidth + 1;
+			if (h > 0) {
+				areaX = x - w;
+				areaY = y;
+				areaW = 2 * w + 1;
+				areaH = h;
+			}
+
+		} catch (BadLocationException | IllegalArgumentException e) {}
+	}
+
+	/**
+	 * Returns the pixel offset of the given stop of the given document line from the start of
+	 * the line. Computed arithmetically for monospace fonts; otherwise determined by a layout
+	 * query on first use.
+	 *
+	 * @param doc     the document
+	 * @param docLine the document line defining the stop
+	 * @param stop    the stop index
+	 * @return the stop offset, or {@code FontMetricsCache.UNKNOWN} if not determinable
+	 */
+	private int stopOffset(IDocument doc, int docLine, int stop) {
+		if (stop == 0 || docLine < 0) return STOP0;
+
+		int px = metrics.stopOffset(stop);
+		if (px != FontMetricsCache.UNKNOWN || largeFile) return px;
+
+		int pos = model.stopPos(docLine, stop);
+		if (pos < 0) return FontMetricsCache.UNKNOWN;
+
+		try {
+			int lineOffset = Utils.widgetOffset(viewer, doc.getLineOffset(docLine));
+			int offset = lineOffset + pos;
+			if (lineOffset < 0 || offset > widget.getCharCount()) return FontMetricsCache.UNKNOWN;
+
+			px = widget.getLocationAtOffset(offset).x - widget.getLocationAtOffset(lineOffset).x;
+			metrics.put(stop, px);
+			return px;
+
+		} catch (BadLocationException e) {
+			return FontMetricsCache.UNKNOWN;
 		}
 	}
 
-	private Line prevNonblankLine(int line, int tabWidth) {
-		if (currLn != null && !currLn.blank) return currLn;
-		if (prevNb != null && prevNb.line < line) return prevNb;
+	/**
+	 * Connects to the indent model of the given document, replacing any model of a prior
+	 * document. The painter settings are applied to the shared model on connection, and after
+	 * only where changed by this painter, so that painters of the same document with differing
+	 * settings do not rebuild the model on each paint.
+	 *
+	 * @param doc the current viewer document
+	 * @return {@code true} if a valid model is available
+	 */
+	private boolean connect(IDocument doc) {
+		if (doc == null) return false;
 
-		for (int prev = line - 1; prev >= 0; prev--) {
-			String text = widget.getLine(prev);
-			if (!text.isBlank()) {
-				return new Line(widget, prev, tabWidth);
+		if (model == null || model.getDocument() != doc) {
+			disconnect();
+			modelTabs = widget.getTabs();
+			model = IndentModel.connect(doc, modelTabs, modelScanner());
+			model.addModelListener(damage);
+			model.setScanner(modelScanner());
+
+		} else {
+			if (modelTabs != widget.getTabs()) {
+				modelTabs = widget.getTabs();
+				model.setTabWidth(modelTabs);
 			}
+			model.validate();
 		}
-		return new Line(null, -1, tabWidth);
+		return true;
 	}
 
-	private Line nextNonblankLine(int line, int tabWidth) {
-		int end = widget.getLineCount();
-		if (nextNb != null && nextNb.line < end && nextNb.line > line) return nextNb;
+	// the comment scanner applied to the model
+	private ICommentScanner modelScanner() {
+		return largeFile ? ICommentScanner.NONE : scanner;
+	}
+
+	private void disconnect() {
+		if (model != null) {
+			model.removeModelListener(damage);
+			IndentModel.disconnect(model);
+			model = null;
+		}
+		dmgBeg = dmgEnd = -1;
+	}
+
+	/**
+	 * Sets the render settings of the painter, and refreshes the painter if changed.
+	 *
+	 * @param render the compiled render settings
+	 * @see #refresh()
+	 */
+	public void setConfig(RenderConfig render) {
+		if (this.render != render) {
+			this.render = render;
+			refresh();
+		}
+	}
+
+	/** Returns the render settings of the painter. */
+	public RenderConfig getConfig() {
+		return render;
+	}
+
+	/**
+	 * Refreshes the painter for changed settings or theme. The painter of a visible widget
+	 * applies its settings and redraws immediately; otherwise, the painter is marked stale and
+	 * applies its settings before its next paint, being when the widget is next shown.
+	 */
+	public void refresh() {
+		if (widget == null || widget.isDisposed()) return;
+
+		if (widget.isVisible()) {
+			configure();
+			redrawAll();
+		} else {
+			stale = true;
+		}
+	}
 
-		for (int next = line + 1; next < end; next++) {
-			String text = widget.getLine(next);
-			if (!text.isBlank()) {
-				return new Line(widget, next, tabWidth);
+	// applies the current render settings
+	private void configure() {
+		stale = false;
+		lineAlpha = render.lineAlpha;
+		lineStyle = render.lineStyle;
+		lineWidth = render.lineWidth;
+		lineShift = render.lineShift;
+
+		advanced = resources.advanced(widget);
+		disposeColors();
+		lineColor = resources.color(render.lineColor);
+		if (render.depthColors) {
+			depthColors = new Color[render.palette.size()];
+			for (int idx = 0; idx < depthColors.length; idx++) {
+				depthColors[idx] = resources.color(render.palette.get(idx));
 			}
 		}
-		return new Line(null, end, tabWidth);
+
+		drawLeadEdge = render.drawLeadEdge;
+		drawBlankLn = render.drawBlankLine && !largeFile;
+		drawComment = render.drawComment;
+		highlightScope = render.highlightScope;
+		areaStale = true;
+		redrawDelay = render.redrawDelay;
+		scopeStale = true;
+
+		config++;
+		disposeStrips();
+		if (render.stripCache && depthColors == null) { // strips render in the line color only
+			strips = new StripCache(render.stripCacheSize * 1024L * 1024L);
+		}
 	}
 
-	public void loadPrefs() {
-		lineAlpha = store.getInt(Pref.LINE_ALPHA);
-		lineStyle = store.getInt(Pref.LINE_STYLE);
-		lineWidth = store.getInt(Pref.LINE_WIDTH);
-		lineShift = store.getInt(Pref.LINE_SHIFT);
+	/**
+	 * Selects the large file mode. In this mode, guides are not inferred for blank lines,
+	 * comment lines are not recognised, and stop locations not computable from the font metrics
+	 * are not resolved by layout queries.
+	 *
+	 * @param largeFile {@code true} to select the large file mode
+	 */
+	public void setLargeFile(boolean largeFile) {
+		if (this.largeFile != largeFile) {
+			this.largeFile = largeFile;
+			if (model != null) model.setScanner(modelScanner());
+			configure();
+		}
+	}
 
-		disposeLineColor();
-		lineColor = Utils.getColor(store);
+	/** Returns {@code true} if the large file mode is selected. */
+	public boolean isLargeFile() {
+		return largeFile;
+	}
 
-		drawLeadEdge = store.getBoolean(Pref.DRAW_LEAD_EDGE);
-		drawBlankLn = store.getBoolean(Pref.DRAW_BLANK_LINE);
-		drawComment = store.getBoolean(Pref.DRAW_COMMENT_BLOCK);
+	/** Returns the paint metrics of this painter. */
+	public PaintStats stats() {
+		return stats;
 	}
 
 	public boolean isActive() {
@@ -304,36 +898,56 @@ public class GuidePainter implements IPainter, PaintListener {
 	public void deactivate(boolean redraw) {
 		if (active) {
 			active = false;
+			cancelDamage();
 			widget.removePaintListener(this);
+			if (strips != null) strips.clear();
 			if (redraw) redrawAll();
 		}
 	}
 
 	@Override
 	public void dispose() {
-		store = null;
+		if (widget == null) return; // already disposed
+
+		PaintMetrics.getDefault().remove(stats);
+		disconnect();
+		metrics.dispose();
+		projection.dispose();
+		disposeStrips();
+		if (!widget.isDisposed()) {
+			deactivate(false);
+			cancelDamage();
+			widget.removeListener(SWT.Modify, invalidator);
+			widget.removeListener(SWT.Resize, invalidator);
+			widget.removeCaretListener(caret);
+		}
+
 		viewer = null;
 		widget = null;
 
-		disposeLineColor();
+		disposeColors();
+	}
+
+	private void disposeStrips() {
+		if (strips != null) {
+			strips.dispose();
+			strips = null;
+		}
 	}
 
-	private void disposeLineColor() {
+	private void disposeColors() {
 		if (lineColor != null) {
-			lineColor.dispose();
+			resources.release(lineColor);
 			lineColor = null;
 		}
+		if (depthColors != null) {
+			for (Color color : depthColors) {
+				resources.release(color);
+			}
+			depthColors = null;
+		}
 	}
 
 	@Override
 	public void setPositionManager(IPaintPositionManager manager) {}
-
-	// void log(int delta, Line prevNb, Line currLn, Line nextNb) {
-	// Activator.log(new MsgBuilder() //
-	// .nl().append("Delta: %s", delta) //
-	// .nl().append("PrevNb: %s", prevNb) //
-	// .nl().append("CurrLn: %s", currLn) //
-	// .nl().append("NextNb: %s", nextNb)) //
-	// ;
-	// }
 }
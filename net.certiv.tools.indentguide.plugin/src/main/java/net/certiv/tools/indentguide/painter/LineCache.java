@@ -0,0 +1,160 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.painter;
+
+import java.util.Arrays;
+
+import org.eclipse.swt.graphics.Font;
+
+/**
+ * Cache of the computed guide stops of widget lines, so that repainting a line, as when
+ * scrolling back over it, replays its stops without consulting the indent model.
+ * <p>
+ * The stops of a line are held relative to the line start, so remain valid across vertical and
+ * horizontal scrolling. The cache is keyed by the document modification stamp, the font, tab
+ * width and zoom, and the painter configuration serial; a change of any clears the cache.
+ * <p>
+ * The lines are held in a ring of slots addressed by widget line, sized to a window of several
+ * viewports, so a line is evicted when a line one window distant is stored.
+ */
+public class LineCache {
+
+	/** Minimum number of slots. */
+	private static final int MIN_SLOTS = 256;
+	/** Minimum stop capacity per slot. */
+	private static final int MIN_STOPS = 8;
+
+	private long stamp;
+	private Font font;
+	private int tabWidth;
+	private int zoom;
+	private int config;
+
+	/** Number of slots, being a power of two. */
+	private int slots;
+	/** Widget line held per slot; {@code -1} if none. */
+	private int[] lineOf = new int[0];
+	/** Number of stops per slot. */
+	private int[] stops = new int[0];
+	/** Stop x-location, relative to the line start, per slot. */
+	private int[][] stopX = new int[0][];
+	/** Stop flags per slot. */
+	private int[][] stopFlags = new int[0][];
+	/** Stop depth per slot. */
+	private int[][] stopDepth = new int[0][];
+
+	// slot of the line being stored
+	private int cur = -1;
+
+	/**
+	 * Validates the cache against the given key values, clearing the cache if any have changed,
+	 * and sizes the cache to hold the given number of lines.
+	 *
+	 * @param stamp    the document modification stamp
+	 * @param font     the widget font
+	 * @param tabWidth the tab width
+	 * @param zoom     the display zoom
+	 * @param config   the painter configuration serial
+	 * @param lines    the number of lines to hold, being a window around the viewport
+	 */
+	public void validate(long stamp, Font font, int tabWidth, int zoom, int config, int lines) {
+		if (lines > slots) {
+			slots = Math.max(MIN_SLOTS, Integer.highestOneBit(Math.max(lines - 1, 1)) << 1);
+			lineOf = new int[slots];
+			stops = new int[slots];
+			stopX = new int[slots][];
+			stopFlags = new int[slots][];
+			stopDepth = new int[slots][];
+			clear();
+
+		} else if (stamp != this.stamp || font != this.font || tabWidth != this.tabWidth || zoom != this.zoom
+				|| config != this.config) {
+			clear();
+		}
+		this.stamp = stamp;
+		this.font = font;
+		this.tabWidth = tabWidth;
+		this.zoom = zoom;
+		this.config = config;
+	}
+
+	/** Removes all cached lines. */
+	public void clear() {
+		Arrays.fill(lineOf, -1);
+		cur = -1;
+	}
+
+	/** Returns {@code true} if the stops of the given widget line are cached. */
+	public boolean contains(int line) {
+		return slots > 0 && lineOf[line & (slots - 1)] == line;
+	}
+
+	/**
+	 * Adds the cached stops of the given widget line to the current line of the given frame.
+	 *
+	 * @param line  the widget line; must be cached
+	 * @param frame the frame
+	 * @param lineX the x-location of the line start
+	 */
+	public void replay(int line, Frame frame, int lineX) {
+		int slot = line & (slots - 1);
+		int[] xs = stopX[slot];
+		int[] flgs = stopFlags[slot];
+		int[] depths = stopDepth[slot];
+		for (int idx = 0, cnt = stops[slot]; idx < cnt; idx++) {
+			frame.addStop(lineX + xs[idx], flgs[idx], depths[idx]);
+		}
+	}
+
+	/**
+	 * Begins storing the stops of the given widget line, replacing any line held in its slot.
+	 *
+	 * @param line the widget line
+	 */
+	public void begin(int line) {
+		cur = line & (slots - 1);
+		lineOf[cur] = line;
+		stops[cur] = 0;
+		if (stopX[cur] == null) {
+			stopX[cur] = new int[MIN_STOPS];
+			stopFlags[cur] = new int[MIN_STOPS];
+			stopDepth[cur] = new int[MIN_STOPS];
+		}
+	}
+
+	/**
+	 * Stores a stop of the line last begun.
+	 *
+	 * @param x     the stop x-location, relative to the line start
+	 * @param flg   the stop flags
+	 * @param depth the stop depth
+	 */
+	public void add(int x, int flg, int depth) {
+		int n = stops[cur];
+		if (n >= stopX[cur].length) {
+			stopX[cur] = Arrays.copyOf(stopX[cur], n << 1);
+			stopFlags[cur] = Arrays.copyOf(stopFlags[cur], n << 1);
+			stopDepth[cur] = Arrays.copyOf(stopDepth[cur], n << 1);
+		}
+		stopX[cur][n] = x;
+		stopFlags[cur][n] = flg;
+		stopDepth[cur][n] = depth;
+		stops[cur] = n + 1;
+	}
+
+	/** Returns the number of slots. */
+	public int capacity() {
+		return slots;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("LineCache [slots=%s, stamp=%s, config=%s]", slots, stamp, config); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,185 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.painter;
+
+import java.util.Arrays;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.ITextViewerExtension5;
+import org.eclipse.jface.text.source.projection.IProjectionListener;
+import org.eclipse.jface.text.source.projection.ProjectionViewer;
+
+import net.certiv.tools.indentguide.util.Utils;
+
+/**
+ * Cached mapping between widget and document lines of a viewer, including the folded state of
+ * each widget line.
+ * <p>
+ * The visible document is held as a sorted list of segments, each a run of consecutive
+ * document lines shown on consecutive widget lines. The segments are derived in one pass from
+ * the covered model ranges of the viewer projection; a lookup is then a binary search over
+ * the segments. The map is invalidated by the painter on any widget content change, which
+ * includes folding changes, and on projection enablement changes.
+ * <p>
+ * Where the viewer does not expose its covered model ranges, lookups fall back to direct
+ * per-line queries of the viewer.
+ */
+public class ProjectionMap implements IProjectionListener {
+
+	private static final int MIN_SIZE = 16;
+
+	private final ITextViewer viewer;
+
+	private boolean valid;
+	private boolean direct;
+
+	/** Number of widget lines mapped. */
+	private int lines;
+	/** Number of segments. */
+	private int segs;
+	/** First widget line per segment. */
+	private int[] widgetBeg = new int[MIN_SIZE];
+	/** First document line per segment. */
+	private int[] modelBeg = new int[MIN_SIZE];
+
+	public ProjectionMap(ITextViewer viewer) {
+		this.viewer = viewer;
+		if (viewer instanceof ProjectionViewer) {
+			((ProjectionViewer) viewer).addProjectionListener(this);
+		}
+	}
+
+	/** Marks the map for rebuild on next use. */
+	public void invalidate() {
+		valid = false;
+	}
+
+	/** Rebuilds the map if invalidated or out of step with the widget. */
+	public void validate() {
+		int cnt = viewer.getTextWidget().getLineCount();
+		if (valid && cnt == lines) return;
+
+		lines = cnt;
+		segs = 0;
+		direct = false;
+		valid = true;
+
+		try {
+			IDocument doc = viewer.getDocument();
+			if (doc == null) return;
+
+			if (viewer instanceof ITextViewerExtension5) {
+				ITextViewerExtension5 ext = (ITextViewerExtension5) viewer;
+				IRegion coverage = ext.getModelCoverage();
+				IRegion[] ranges = coverage != null ? ext.getCoveredModelRanges(coverage) : null;
+				if (ranges == null) {
+					direct = true;
+					return;
+				}
+
+				for (IRegion range : ranges) {
+					int model = doc.getLineOfOffset(range.getOffset());
+					int widget = ext.modelLine2WidgetLine(model);
+					if (widget >= 0) add(widget, model);
+				}
+
+			} else {
+				IRegion visible = viewer.getVisibleRegion();
+				add(0, doc.getLineOfOffset(visible.getOffset()));
+			}
+
+		} catch (BadLocationException e) {
+			direct = true;
+		}
+	}
+
+	// adds a segment, merging where continuous with the prior segment
+	private void add(int widget, int model) {
+		if (segs > 0) {
+			int prior = segs - 1;
+			if (widget <= widgetBeg[prior]) return;
+			if (widget - widgetBeg[prior] == model - modelBeg[prior]) return;
+		}
+		if (segs >= widgetBeg.length) {
+			widgetBeg = Arrays.copyOf(widgetBeg, segs << 1);
+			modelBeg = Arrays.copyOf(modelBeg, segs << 1);
+		}
+		widgetBeg[segs] = widget;
+		modelBeg[segs] = model;
+		segs++;
+	}
+
+	/**
+	 * Returns the document line of the given widget line.
+	 *
+	 * @param line the widget line
+	 * @return the document line, or {@code -1} if not determinable
+	 */
+	public int docLine(int line) {
+		if (direct) return Utils.docLine(viewer, line);
+
+		int seg = segmentOf(line);
+		if (seg < 0) return -1;
+		return modelBeg[seg] + line - widgetBeg[seg];
+	}
+
+	/**
+	 * Returns {@code true} if the given widget line is a folded line, being a line whose
+	 * following document line is not visible.
+	 *
+	 * @param line the widget line
+	 * @return {@code true} if the line is folded
+	 */
+	public boolean isFolded(int line) {
+		if (direct) return Utils.isFolded(viewer, line);
+
+		int seg = segmentOf(line);
+		if (seg < 0) return false;
+
+		int next = seg + 1;
+		int end = next < segs ? widgetBeg[next] - 1 : lines - 1;
+		return line == end && viewer instanceof ITextViewerExtension5;
+	}
+
+	// index of the segment containing the given widget line; -1 if none
+	private int segmentOf(int line) {
+		if (line < 0 || line >= lines) return -1;
+
+		int lo = 0;
+		int hi = segs - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (widgetBeg[mid] <= line) {
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return hi;
+	}
+
+	@Override
+	public void projectionEnabled() {
+		invalidate();
+	}
+
+	@Override
+	public void projectionDisabled() {
+		invalidate();
+	}
+
+	public void dispose() {
+		if (viewer instanceof ProjectionViewer) {
+			((ProjectionViewer) viewer).removeProjectionListener(this);
+		}
+	}
+}
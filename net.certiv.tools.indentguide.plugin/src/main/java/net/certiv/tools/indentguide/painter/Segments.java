@@ -0,0 +1,179 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.painter;
+
+import java.util.Arrays;
+
+/**
+ * Reusable store of the vertical guide segments of a single paint frame.
+ * <p>
+ * Coalesces the per-line guide stops of a {@link Frame} into segments, merging the stops at the
+ * same x-location on vertically contiguous lines into a single segment. Each segment is then
+ * drawn with a single draw call, and dashed line styles render as one continuous pattern.
+ * <p>
+ * For drawing in per-depth colors, the segments can be grouped by color, being the segment
+ * depth modulo the number of colors, so that each color is set once per frame.
+ */
+public class Segments {
+
+	private static final int MIN_SIZE = 64;
+
+	/** Number of segments. */
+	private int count;
+	/** X-location per segment. */
+	private int[] segX = new int[MIN_SIZE];
+	/** Top y-location per segment. */
+	private int[] segY1 = new int[MIN_SIZE];
+	/** Bottom y-location per segment. */
+	private int[] segY2 = new int[MIN_SIZE];
+	/** Nesting depth per segment. */
+	private int[] segDepth = new int[MIN_SIZE];
+
+	/** Segment indices ordered by color group. */
+	private int[] order = new int[MIN_SIZE];
+	/** Index into the order of the first segment per color group; the group ends at {@code n+1}. */
+	private int[] groupBeg = new int[1];
+
+	// indices of the segments open on the prior and current line
+	private int[] prior = new int[MIN_SIZE];
+	private int[] open = new int[MIN_SIZE];
+
+	/**
+	 * Rebuilds the segments from the given frame.
+	 *
+	 * @param frame   the frame
+	 * @param spacing the widget line spacing
+	 */
+	public void coalesce(Frame frame, int spacing) {
+		count = 0;
+		int priors = 0;
+
+		for (int line = 0, lines = frame.lines(); line < lines; line++) {
+			int y = frame.lineY(line);
+			int bot = y + frame.lineHeight(line) + spacing;
+			int opens = 0;
+
+			for (int stop = frame.stopBeg(line), end = frame.stopEnd(line); stop < end; stop++) {
+				int x = frame.stopX(stop);
+				int depth = frame.stopDepth(stop);
+				int top = (frame.stopFlags(stop) & Frame.ASC) != 0 ? y - spacing : y;
+
+				int seg = -1;
+				for (int idx = 0; idx < priors; idx++) {
+					int p = prior[idx];
+					if (segX[p] == x && segDepth[p] == depth && segY2[p] >= top) {
+						seg = p;
+						break;
+					}
+				}
+
+				if (seg < 0) {
+					seg = add(x, top, bot, depth);
+				} else {
+					segY1[seg] = Math.min(segY1[seg], top);
+					segY2[seg] = Math.max(segY2[seg], bot);
+				}
+
+				if (opens >= open.length) {
+					open = Arrays.copyOf(open, opens << 1);
+					prior = Arrays.copyOf(prior, opens << 1);
+				}
+				open[opens++] = seg;
+			}
+
+			int[] tmp = prior;
+			prior = open;
+			open = tmp;
+			priors = opens;
+		}
+	}
+
+	private int add(int x, int y1, int y2, int depth) {
+		if (count >= segX.length) {
+			int cap = segX.length << 1;
+			segX = Arrays.copyOf(segX, cap);
+			segY1 = Arrays.copyOf(segY1, cap);
+			segY2 = Arrays.copyOf(segY2, cap);
+			segDepth = Arrays.copyOf(segDepth, cap);
+		}
+		segX[count] = x;
+		segY1[count] = y1;
+		segY2[count] = y2;
+		segDepth[count] = depth;
+		return count++;
+	}
+
+	/**
+	 * Groups the segments by color, being the segment depth modulo the given number of colors.
+	 * Counting sort; stable within each group.
+	 *
+	 * @param colors the number of colors
+	 */
+	public void group(int colors) {
+		if (groupBeg.length < colors + 1) groupBeg = new int[colors + 1];
+		if (order.length < count) order = new int[segX.length];
+
+		Arrays.fill(groupBeg, 0, colors + 1, 0);
+		for (int seg = 0; seg < count; seg++) {
+			groupBeg[segDepth[seg] % colors + 1]++;
+		}
+		for (int grp = 0; grp < colors; grp++) {
+			groupBeg[grp + 1] += groupBeg[grp];
+		}
+
+		// fill using the group starts as cursors, then restore the starts
+		for (int seg = 0; seg < count; seg++) {
+			order[groupBeg[segDepth[seg] % colors]++] = seg;
+		}
+		for (int grp = colors; grp > 0; grp--) {
+			groupBeg[grp] = groupBeg[grp - 1];
+		}
+		groupBeg[0] = 0;
+	}
+
+	/** Returns the index into the {@link #order} of the first segment of the given color group. */
+	public int groupBeg(int grp) {
+		return groupBeg[grp];
+	}
+
+	/** Returns the index into the {@link #order} following the last segment of the given group. */
+	public int groupEnd(int grp) {
+		return groupBeg[grp + 1];
+	}
+
+	/** Returns the segment at the given index of the color group order. */
+	public int order(int idx) {
+		return order[idx];
+	}
+
+	/** Returns the number of segments. */
+	public int count() {
+		return count;
+	}
+
+	/** Returns the x-location of the given segment. */
+	public int x(int seg) {
+		return segX[seg];
+	}
+
+	/** Returns the top y-location of the given segment. */
+	public int y1(int seg) {
+		return segY1[seg];
+	}
+
+	/** Returns the bottom y-location of the given segment. */
+	public int y2(int seg) {
+		return segY2[seg];
+	}
+
+	/** Returns the nesting depth of the given segment. */
+	public int depth(int seg) {
+		return segDepth[seg];
+	}
+}
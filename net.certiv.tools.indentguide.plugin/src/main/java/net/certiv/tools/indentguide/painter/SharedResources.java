@@ -0,0 +1,151 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.painter;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Drawable;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Display-wide graphics resources shared by all painters of a display.
+ * <p>
+ * Colors are shared by value and reference counted: each {@link #color} must be balanced by a
+ * {@link #release}, and a color is disposed on its last release. The advanced graphics
+ * capability of the display is probed once. All resources are released on display disposal;
+ * {@link #invalidate} discards the cached probe, as on theme change. Not thread-safe: access
+ * only from the UI thread.
+ */
+public final class SharedResources {
+
+	// key=display; value=resources
+	private static final Map<Display, SharedResources> Instances = new IdentityHashMap<>();
+
+	private final Display display;
+
+	// key=color value; value=shared color
+	private final Map<RGB, Shared> colors = new HashMap<>();
+	// advanced graphics capability; null if not yet probed
+	private Boolean advanced;
+
+	private static class Shared {
+		final Color color;
+		int refs;
+
+		Shared(Color color) {
+			this.color = color;
+		}
+	}
+
+	/**
+	 * Returns the resources of the given display, creating them as needed.
+	 *
+	 * @param display the display
+	 * @return the display resources
+	 */
+	public static SharedResources of(Display display) {
+		SharedResources res = Instances.get(display);
+		if (res == null) {
+			SharedResources created = new SharedResources(display);
+			Instances.put(display, created);
+			display.disposeExec(() -> {
+				Instances.remove(display);
+				created.dispose();
+			});
+			res = created;
+		}
+		return res;
+	}
+
+	/** Invalidates the cached state of the resources of all displays. */
+	public static void invalidateAll() {
+		for (SharedResources res : Instances.values()) {
+			res.invalidate();
+		}
+	}
+
+	private SharedResources(Display display) {
+		this.display = display;
+	}
+
+	/**
+	 * Returns the shared color of the given value, acquiring a reference.
+	 *
+	 * @param rgb the color value
+	 * @return the shared color
+	 */
+	public Color color(RGB rgb) {
+		Shared shared = colors.get(rgb);
+		if (shared == null) {
+			shared = new Shared(new Color(display, rgb));
+			colors.put(rgb, shared);
+		}
+		shared.refs++;
+		return shared.color;
+	}
+
+	/**
+	 * Releases a reference to the given shared color. Has no effect for a {@code null} or
+	 * unshared color.
+	 *
+	 * @param color the shared color
+	 */
+	public void release(Color color) {
+		if (color == null || color.isDisposed()) return;
+
+		RGB rgb = color.getRGB();
+		Shared shared = colors.get(rgb);
+		if (shared == null || shared.color != color) return;
+
+		shared.refs--;
+		if (shared.refs <= 0) {
+			colors.remove(rgb);
+			shared.color.dispose();
+		}
+	}
+
+	/**
+	 * Returns whether advanced graphics are supported, probing once on the given drawable.
+	 *
+	 * @param drawable a drawable of the display
+	 * @return {@code true} if advanced graphics are supported
+	 */
+	public boolean advanced(Drawable drawable) {
+		if (advanced == null) {
+			GC gc = new GC(drawable);
+			gc.setAdvanced(true);
+			advanced = gc.getAdvanced();
+			gc.dispose();
+		}
+		return advanced;
+	}
+
+	/** Discards the cached probe state. Shared colors remain valid until released. */
+	public void invalidate() {
+		advanced = null;
+	}
+
+	/** Returns the number of shared colors. */
+	public int colors() {
+		return colors.size();
+	}
+
+	private void dispose() {
+		for (Shared shared : colors.values()) {
+			shared.color.dispose();
+		}
+		colors.clear();
+		advanced = null;
+	}
+}
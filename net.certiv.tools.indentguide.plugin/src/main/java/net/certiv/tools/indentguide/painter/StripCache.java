@@ -0,0 +1,175 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.painter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.Image;
+
+/**
+ * Bounded, least-recently-used cache of rendered guide strips.
+ * <p>
+ * A strip is the transparent image of all guides within the widget client area. Strips are
+ * keyed by the viewport position, document modification stamp, font, tab width, zoom and
+ * preference configuration, so a strip is only reused where the guides would render
+ * identically. The cache is additionally cleared by the painter on any widget content or size
+ * change.
+ * <p>
+ * The total image memory held is bounded by a byte budget; least recently used strips are
+ * evicted, and disposed, to stay within the budget.
+ */
+public class StripCache {
+
+	/** A cached strip; the image is {@code null} where the strip contains no guides. */
+	public static class Strip {
+
+		public final Image image;
+		final long bytes;
+
+		Strip(Image image, long bytes) {
+			this.image = image;
+			this.bytes = bytes;
+		}
+	}
+
+	private final LinkedHashMap<Key, Strip> strips = new LinkedHashMap<>(16, 0.75f, true);
+	private final Key probe = new Key();
+	private final long budget;
+	private long used;
+
+	/**
+	 * Creates a strip cache.
+	 *
+	 * @param budget the maximum image memory to hold, in bytes
+	 */
+	public StripCache(long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Returns the strip matching the given key values. The key values are retained for a
+	 * subsequent {@link #store}.
+	 *
+	 * @return the cached strip, or {@code null} if none
+	 */
+	public Strip lookup(int topPixel, int hPixel, long stamp, Font font, int tabWidth, int zoom,
+			int config) {
+		probe.set(topPixel, hPixel, stamp, font, tabWidth, zoom, config);
+		return strips.get(probe);
+	}
+
+	/**
+	 * Stores the given image as the strip for the key values of the last {@link #lookup}.
+	 * Evicts least recently used strips as needed to remain within budget.
+	 *
+	 * @param image the strip image, or {@code null} for an empty strip
+	 * @param bytes the estimated image memory size
+	 * @return {@code true} if stored; {@code false} if the image alone exceeds the budget, in
+	 *         which case the caller retains ownership of the image
+	 */
+	public boolean store(Image image, long bytes) {
+		if (bytes > budget) return false;
+
+		Strip prior = strips.put(probe.copy(), new Strip(image, bytes));
+		if (prior != null) release(prior);
+		used += bytes;
+
+		Iterator<Strip> it = strips.values().iterator();
+		while (used > budget && it.hasNext()) {
+			Strip eldest = it.next();
+			it.remove();
+			release(eldest);
+		}
+		return true;
+	}
+
+	/** Returns the number of cached strips. */
+	public int size() {
+		return strips.size();
+	}
+
+	/** Returns the estimated image memory held, in bytes. */
+	public long used() {
+		return used;
+	}
+
+	/** Removes, and disposes, all cached strips. */
+	public void clear() {
+		if (strips.isEmpty()) return;
+
+		for (Strip strip : strips.values()) {
+			release(strip);
+		}
+		strips.clear();
+	}
+
+	public void dispose() {
+		clear();
+	}
+
+	private void release(Strip strip) {
+		used -= strip.bytes;
+		if (strip.image != null && !strip.image.isDisposed()) {
+			strip.image.dispose();
+		}
+	}
+
+	private static class Key {
+
+		int topPixel;
+		int hPixel;
+		long stamp;
+		Font font;
+		int tabWidth;
+		int zoom;
+		int config;
+
+		void set(int topPixel, int hPixel, long stamp, Font font, int tabWidth, int zoom, int config) {
+			this.topPixel = topPixel;
+			this.hPixel = hPixel;
+			this.stamp = stamp;
+			this.font = font;
+			this.tabWidth = tabWidth;
+			this.zoom = zoom;
+			this.config = config;
+		}
+
+		Key copy() {
+			Key key = new Key();
+			key.set(topPixel, hPixel, stamp, font, tabWidth, zoom, config);
+			return key;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = 31 * topPixel + hPixel;
+			h = 31 * h + Long.hashCode(stamp);
+			h = 31 * h + System.identityHashCode(font);
+			h = 31 * h + tabWidth;
+			h = 31 * h + zoom;
+			return 31 * h + config;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			Key o = (Key) obj;
+			return topPixel == o.topPixel && hPixel == o.hPixel && stamp == o.stamp && font == o.font
+					&& tabWidth == o.tabWidth && zoom == o.zoom && config == o.config;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("StripCache [strips=%s, used=%s, budget=%s]", strips.size(), used, budget);
+	}
+}
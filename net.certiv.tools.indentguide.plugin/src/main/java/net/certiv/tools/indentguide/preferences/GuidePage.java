@@ -2,9 +2,12 @@ package net.certiv.tools.indentguide.preferences;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -14,8 +17,11 @@ import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.jface.layout.GridDataFactory;
 import org.eclipse.jface.layout.GridLayoutFactory;
 import org.eclipse.jface.preference.ColorFieldEditor;
+import org.eclipse.jface.preference.ColorSelector;
 import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.preference.PreferenceConverter;
 import org.eclipse.jface.preference.PreferencePage;
+import org.eclipse.jface.resource.StringConverter;
 import org.eclipse.jface.viewers.CheckboxTreeViewer;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.viewers.LabelProvider;
@@ -25,6 +31,7 @@ import org.eclipse.jface.viewers.ViewerFilter;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
@@ -36,6 +43,7 @@ import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
 
 import net.certiv.tools.indentguide.Activator;
+import net.certiv.tools.indentguide.util.MsgBuilder;
 import net.certiv.tools.indentguide.util.Utils;
 
 public class GuidePage extends PreferencePage implements IWorkbenchPreferencePage {
@@ -48,6 +56,9 @@ public class GuidePage extends PreferencePage implements IWorkbenchPreferencePag
 			Messages.style_dash_dot_dot //
 	};
 
+	// number of depth palette colors editable
+	private static final int PALETTE_SIZE = 6;
+
 	private final List<Composite> blocks = new LinkedList<>();
 	private final List<Object> parts = new LinkedList<>();
 
@@ -57,6 +68,19 @@ public class GuidePage extends PreferencePage implements IWorkbenchPreferencePag
 	// explicitly excluded content types; current as of plugin startup or last OKd values
 	private Set<IContentType> excludeTypes;
 
+	// ids of the content types having a profile; working copy
+	private final Set<String> profileIds;
+	// edited profile setting values, by profile or global store key
+	private final Map<String, String> values = new HashMap<>();
+	// content type of the profile shown, or null for the global settings; per profile combo item
+	private final List<IContentType> profileTypes = new ArrayList<>();
+	// id of the profile shown, or null for the global settings
+	private String profile;
+
+	private Button enabled;
+	private Combo profileCombo;
+	private Button override;
+
 	public GuidePage() {
 		setPreferenceStore(Activator.getDefault().getPreferenceStore());
 
@@ -67,6 +91,8 @@ public class GuidePage extends PreferencePage implements IWorkbenchPreferencePag
 				.map(e -> Utils.getPlatformTextType(e)) //
 				.filter(t -> t != null && !txtType.equals(t)) //
 				.collect(Collectors.toCollection(LinkedHashSet::new));
+
+		profileIds = Utils.undelimit(getPreferenceStore().getString(Pref.PROFILES));
 	}
 
 	@Override
@@ -82,8 +108,10 @@ public class GuidePage extends PreferencePage implements IWorkbenchPreferencePag
 
 		createEnabledCheckBox(comp);
 
+		createProfileGroup(comp);
 		createAttributeGroup(comp);
 		createDrawingGroup(comp);
+		createRenderingGroup(comp);
 		createContentTypesGroup(comp);
 
 		applyDialogFont(comp);
@@ -91,22 +119,62 @@ public class GuidePage extends PreferencePage implements IWorkbenchPreferencePag
 	}
 
 	private void createEnabledCheckBox(Composite comp) {
-		Button btn = createLabeledCheckbox(comp, Messages.enabled_label, Pref.ENABLED);
-		btn.addSelectionListener(new SelectionAdapter() {
+		enabled = createLabeledCheckbox(comp, Messages.enabled_label, Pref.ENABLED);
+		enabled.addSelectionListener(new SelectionAdapter() {
 
 			@Override
 			public void widgetSelected(final SelectionEvent e) {
-				boolean active = btn.getSelection();
+				boolean active = enabled.getSelection();
 				for (Composite comp : blocks) {
 					for (Control control : comp.getChildren()) {
 						control.setEnabled(active);
 					}
 				}
+				updateProfileState();
 			}
 		});
 		createVerticalSpacer(comp, 1);
 	}
 
+	private void createProfileGroup(Composite parent) {
+		Composite comp = createGroup(parent, Messages.profile_group_label, false, 2);
+		blocks.add(comp);
+
+		profileTypes.add(null);
+		Utils.platformTextTypes().stream() //
+				.sorted(Comparator.comparing(IContentType::getName)) //
+				.forEach(profileTypes::add);
+
+		createLabel(comp, Messages.profile_label);
+		profileCombo = new Combo(comp, SWT.READ_ONLY);
+		for (IContentType type : profileTypes) {
+			profileCombo.add(type != null ? type.getName() : Messages.profile_global);
+		}
+		profileCombo.select(0);
+		GridDataFactory.fillDefaults().align(SWT.FILL, SWT.CENTER).grab(true, false).indent(9, 0)
+				.applyTo(profileCombo);
+		profileCombo.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				IContentType type = profileTypes.get(profileCombo.getSelectionIndex());
+				showProfile(type != null ? type.getId() : null);
+			}
+		});
+
+		override = new Button(comp, SWT.CHECK);
+		override.setText(Messages.profile_override_label);
+		GridDataFactory.fillDefaults().align(SWT.FILL, SWT.CENTER).span(2, 1).applyTo(override);
+		override.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				setOverride(override.getSelection());
+			}
+		});
+		override.setEnabled(false);
+	}
+
 	private void createAttributeGroup(Composite parent) {
 		Composite comp = createGroup(parent, Messages.attribute_group_label, false, 3);
 		blocks.add(comp);
@@ -125,6 +193,25 @@ public class GuidePage extends PreferencePage implements IWorkbenchPreferencePag
 		createLabeledCheckbox(comp, Messages.draw_lead_edge_label, Pref.DRAW_LEAD_EDGE);
 		createLabeledCheckbox(comp, Messages.draw_blank_line_label, Pref.DRAW_BLANK_LINE);
 		createLabeledCheckbox(comp, Messages.draw_comment_block_label, Pref.DRAW_COMMENT_BLOCK);
+		createLabeledCheckbox(comp, Messages.depth_colors_label, Pref.DEPTH_COLORS);
+		createPaletteEditor(comp, Messages.depth_palette_label, paletteKey());
+		createLabeledCheckbox(comp, Messages.highlight_scope_label, Pref.HIGHLIGHT_SCOPE);
+	}
+
+	private void createRenderingGroup(Composite parent) {
+		Composite comp = createGroup(parent, Messages.rendering_group_label, false, 3);
+		blocks.add(comp);
+
+		Button btn = createLabeledCheckbox(comp, Messages.strip_cache_label, Pref.STRIP_CACHE);
+		GridDataFactory.fillDefaults().align(SWT.FILL, SWT.CENTER).span(3, 1).applyTo(btn);
+		createLabeledSpinner(comp, Messages.strip_cache_size_label1, Messages.strip_cache_size_label2, 1, 64,
+				Pref.STRIP_CACHE_SIZE);
+		createLabeledSpinner(comp, Messages.redraw_delay_label1, Messages.redraw_delay_label2, 0, 200,
+				Pref.REDRAW_DELAY);
+		createLabeledSpinner(comp, Messages.large_file_lines_label1, Messages.large_file_lines_label2, 1000,
+				10000000, Pref.LARGE_FILE_LINES);
+		createLabeledSpinner(comp, Messages.large_file_length_label1, Messages.large_file_length_label2, 1000,
+				10000000, Pref.LARGE_FILE_LINE_LENGTH);
 	}
 
 	private void createContentTypesGroup(Composite parent) {
@@ -163,7 +250,7 @@ public class GuidePage extends PreferencePage implements IWorkbenchPreferencePag
 			IContentType type = (IContentType) evt.getElement();
 			boolean state = viewer.getChecked(type);
 			updateCheckState(viewer, type, state);
-			Activator.log("state change %s [%s]", type, state);
+			Activator.debug(() -> new MsgBuilder("state change %s [%s]", type, state));
 		});
 	}
 
@@ -261,10 +348,28 @@ public class GuidePage extends PreferencePage implements IWorkbenchPreferencePag
 		parts.add(editor);
 	}
 
+	private void createPaletteEditor(Composite comp, String label, String key) {
+		Composite inner = new Composite(comp, SWT.NONE);
+		GridLayoutFactory.fillDefaults().numColumns(PALETTE_SIZE + 1).applyTo(inner);
+		GridDataFactory.fillDefaults().applyTo(inner);
+
+		createLabel(inner, label);
+		PaletteEditor editor = new PaletteEditor(inner, key);
+		editor.write(getPreferenceStore().getString(key));
+
+		parts.add(editor);
+	}
+
 	@Override
 	protected void performDefaults() {
 		IPreferenceStore store = getPreferenceStore();
 
+		// drop all profiles; show the global settings
+		profileIds.clear();
+		values.clear();
+		profile = null;
+		profileCombo.select(0);
+
 		for (Object part : parts) {
 			if (part instanceof Button) {
 				Button btn = ((Button) part);
@@ -286,6 +391,10 @@ public class GuidePage extends PreferencePage implements IWorkbenchPreferencePag
 				ColorFieldEditor editor = (ColorFieldEditor) part;
 				editor.loadDefault();
 
+			} else if (part instanceof PaletteEditor) {
+				PaletteEditor editor = (PaletteEditor) part;
+				editor.write(store.getDefaultString(editor.key));
+
 			} else if (part instanceof CheckboxTreeViewer) {
 				CheckboxTreeViewer viewer = (CheckboxTreeViewer) part;
 
@@ -298,6 +407,7 @@ public class GuidePage extends PreferencePage implements IWorkbenchPreferencePag
 			}
 		}
 
+		updateProfileState();
 		super.performDefaults();
 	}
 
@@ -305,7 +415,10 @@ public class GuidePage extends PreferencePage implements IWorkbenchPreferencePag
 	public boolean performOk() {
 		IPreferenceStore store = getPreferenceStore();
 
+		saveProfile();
 		for (Object part : parts) {
+			if (isProfiled(keyOf(part))) continue;
+
 			if (part instanceof Button) {
 				Button btn = ((Button) part);
 				String key = (String) btn.getData();
@@ -321,20 +434,167 @@ public class GuidePage extends PreferencePage implements IWorkbenchPreferencePag
 				String key = (String) spin.getData();
 				store.setValue(key, spin.getSelection());
 
-			} else if (part instanceof ColorFieldEditor) {
-				ColorFieldEditor editor = (ColorFieldEditor) part;
-				editor.store();
-
 			} else if (part instanceof CheckboxTreeViewer) {
 				CheckboxTreeViewer viewer = (CheckboxTreeViewer) part;
 				excludeTypes = getUnChecked(viewer);
 				store.setValue(Pref.CONTENT_TYPES, Utils.delimitTypes(excludeTypes));
 			}
 		}
+		storeProfiles(store);
 
 		return super.performOk();
 	}
 
+	/**
+	 * Stores the global settings and the profiles. Profile settings equal to the corresponding
+	 * global setting are removed from the store, to be inherited.
+	 */
+	private void storeProfiles(IPreferenceStore store) {
+		for (String key : Pref.PROFILE_KEYS) {
+			String value = values.get(key);
+			if (value != null) store.setValue(key, value);
+		}
+
+		Set<String> ids = Utils.undelimit(store.getString(Pref.PROFILES));
+		ids.addAll(profileIds);
+		for (String id : ids) {
+			for (String key : Pref.PROFILE_KEYS) {
+				String pkey = Pref.profileKey(id, key);
+				String value = value(id, key);
+				if (profileIds.contains(id) && !value.equals(value(null, key))) {
+					store.setValue(pkey, value);
+				} else {
+					store.setToDefault(pkey);
+				}
+			}
+		}
+		store.setValue(Pref.PROFILES, Utils.delimit(profileIds));
+	}
+
+	/** Shows the settings of the given profile, or the global settings if {@code null}. */
+	private void showProfile(String id) {
+		saveProfile();
+		profile = id;
+		loadProfile();
+		updateProfileState();
+	}
+
+	/** Adds or removes the profile shown. */
+	private void setOverride(boolean on) {
+		if (profile == null) return;
+
+		if (on) {
+			profileIds.add(profile);
+		} else {
+			profileIds.remove(profile);
+			for (String key : Pref.PROFILE_KEYS) {
+				values.remove(Pref.profileKey(profile, key));
+			}
+		}
+		loadProfile();
+		updateProfileState();
+	}
+
+	// saves the edited settings of the profile shown, if editable
+	private void saveProfile() {
+		if (profile != null && !profileIds.contains(profile)) return;
+
+		for (Object part : parts) {
+			String key = keyOf(part);
+			if (isProfiled(key)) {
+				values.put(profile != null ? Pref.profileKey(profile, key) : key, read(part));
+			}
+		}
+	}
+
+	// loads the settings of the profile shown
+	private void loadProfile() {
+		for (Object part : parts) {
+			String key = keyOf(part);
+			if (isProfiled(key)) write(part, value(profile, key));
+		}
+	}
+
+	// enables the profile settings where the global settings or an existing profile are shown
+	private void updateProfileState() {
+		boolean active = enabled.getSelection();
+		boolean exists = profile != null && profileIds.contains(profile);
+		boolean editable = active && (profile == null || exists);
+
+		override.setSelection(exists);
+		override.setEnabled(active && profile != null);
+		for (Object part : parts) {
+			if (!isProfiled(keyOf(part))) continue;
+
+			if (part instanceof Control) {
+				((Control) part).setEnabled(editable);
+			} else if (part instanceof ColorFieldEditor) {
+				((ColorFieldEditor) part).getColorSelector().setEnabled(editable);
+			} else if (part instanceof PaletteEditor) {
+				((PaletteEditor) part).setEnabled(editable);
+			}
+		}
+	}
+
+	/**
+	 * Returns the edited or stored value of the given setting of the given profile, or of the
+	 * global settings if {@code null}. A setting not set in an existing profile is inherited.
+	 */
+	private String value(String id, String key) {
+		if (id != null && profileIds.contains(id)) {
+			String pkey = Pref.profileKey(id, key);
+			String value = values.get(pkey);
+			if (value != null) return value;
+			if (getPreferenceStore().contains(pkey)) return getPreferenceStore().getString(pkey);
+		}
+		String value = values.get(key);
+		return value != null ? value : getPreferenceStore().getString(key);
+	}
+
+	private String keyOf(Object part) {
+		if (part instanceof Control) return (String) ((Control) part).getData();
+		if (part instanceof ColorFieldEditor) return ((ColorFieldEditor) part).getPreferenceName();
+		if (part instanceof PaletteEditor) return ((PaletteEditor) part).key;
+		return null;
+	}
+
+	private boolean isProfiled(String key) {
+		return key != null && Arrays.asList(Pref.PROFILE_KEYS).contains(key);
+	}
+
+	// returns the value of the given part in store string form
+	private String read(Object part) {
+		if (part instanceof Button) return String.valueOf(((Button) part).getSelection());
+		if (part instanceof Combo) return String.valueOf(((Combo) part).getSelectionIndex() + 1);
+		if (part instanceof Spinner) return String.valueOf(((Spinner) part).getSelection());
+		if (part instanceof ColorFieldEditor) {
+			return StringConverter.asString(((ColorFieldEditor) part).getColorSelector().getColorValue());
+		}
+		if (part instanceof PaletteEditor) return ((PaletteEditor) part).read();
+		return null;
+	}
+
+	// sets the given part to the given store string form value
+	private void write(Object part, String value) {
+		if (part instanceof Button) {
+			((Button) part).setSelection(StringConverter.asBoolean(value, false));
+
+		} else if (part instanceof Combo) {
+			int idx = StringConverter.asInt(value, 1) - 1;
+			((Combo) part).setText(STYLES[idx >= 0 && idx < STYLES.length ? idx : 0]);
+
+		} else if (part instanceof Spinner) {
+			((Spinner) part).setSelection(StringConverter.asInt(value, 0));
+
+		} else if (part instanceof ColorFieldEditor) {
+			RGB rgb = StringConverter.asRGB(value, PreferenceConverter.COLOR_DEFAULT_DEFAULT);
+			((ColorFieldEditor) part).getColorSelector().setColorValue(rgb);
+
+		} else if (part instanceof PaletteEditor) {
+			((PaletteEditor) part).write(value);
+		}
+	}
+
 	/**
 	 * Returns the types of the checked, and optionally not grayed, elements in the tree
 	 * viewer.
@@ -389,6 +649,50 @@ public class GuidePage extends PreferencePage implements IWorkbenchPreferencePag
 		return key;
 	}
 
+	private String paletteKey() {
+		String key = Pref.DEPTH_PALETTE;
+		if (Utils.isDarkTheme()) {
+			key += Pref.DARK;
+		}
+		return key;
+	}
+
+	/** Row of color selectors editing a delimited palette preference value. */
+	private static class PaletteEditor {
+
+		final String key;
+		private final ColorSelector[] selectors = new ColorSelector[PALETTE_SIZE];
+
+		PaletteEditor(Composite comp, String key) {
+			this.key = key;
+			for (int idx = 0; idx < selectors.length; idx++) {
+				selectors[idx] = new ColorSelector(comp);
+			}
+		}
+
+		String read() {
+			StringBuilder sb = new StringBuilder();
+			for (ColorSelector selector : selectors) {
+				if (sb.length() > 0) sb.append(Utils.DELIM);
+				sb.append(StringConverter.asString(selector.getColorValue()));
+			}
+			return sb.toString();
+		}
+
+		void write(String value) {
+			List<RGB> palette = RenderConfig.palette(value, PreferenceConverter.COLOR_DEFAULT_DEFAULT);
+			for (int idx = 0; idx < selectors.length; idx++) {
+				selectors[idx].setColorValue(palette.get(idx % palette.size()));
+			}
+		}
+
+		void setEnabled(boolean enabled) {
+			for (ColorSelector selector : selectors) {
+				selector.setEnabled(enabled);
+			}
+		}
+	}
+
 	private class TextTypeFilter extends ViewerFilter {
 
 		@Override
@@ -19,6 +19,8 @@ public class Initializer extends AbstractPreferenceInitializer {
 
 	private static final String BLACK = "0,0,0"; // $NON-NLS-1$
 	private static final String LIGHT = "192,192,192"; // $NON-NLS-1$
+	private static final String PALETTE = "204,0,0|0,136,0|0,0,204|204,136,0|136,0,204|0,136,136"; // $NON-NLS-1$
+	private static final String PALETTE_DARK = "255,102,102|102,204,102|102,153,255|255,204,102|204,153,255|102,204,204"; // $NON-NLS-1$
 
 	@Override
 	public void initializeDefaultPreferences() {
@@ -34,6 +36,16 @@ public class Initializer extends AbstractPreferenceInitializer {
 		store.setDefault(Pref.DRAW_LEAD_EDGE, false);
 		store.setDefault(Pref.DRAW_BLANK_LINE, true);
 		store.setDefault(Pref.DRAW_COMMENT_BLOCK, false);
+		store.setDefault(Pref.DEPTH_COLORS, false);
+		store.setDefault(Pref.DEPTH_PALETTE, PALETTE);
+		store.setDefault(Pref.DEPTH_PALETTE + Pref.DARK, PALETTE_DARK);
+		store.setDefault(Pref.HIGHLIGHT_SCOPE, true);
 		store.setDefault(Pref.CONTENT_TYPES, "");
+		store.setDefault(Pref.PROFILES, "");
+		store.setDefault(Pref.STRIP_CACHE, false);
+		store.setDefault(Pref.STRIP_CACHE_SIZE, 8);
+		store.setDefault(Pref.REDRAW_DELAY, 30);
+		store.setDefault(Pref.LARGE_FILE_LINES, 100000);
+		store.setDefault(Pref.LARGE_FILE_LINE_LENGTH, 20000);
 	}
 }
@@ -16,6 +16,10 @@ public class Messages extends NLS {
 
 	public static String description;
 	public static String enabled_label;
+	public static String profile_group_label;
+	public static String profile_label;
+	public static String profile_global;
+	public static String profile_override_label;
 	public static String attribute_group_label;
 	public static String alpha_label1;
 	public static String alpha_label2;
@@ -36,6 +40,19 @@ public class Messages extends NLS {
 	public static String draw_lead_edge_label;
 	public static String draw_blank_line_label;
 	public static String draw_comment_block_label;
+	public static String depth_colors_label;
+	public static String depth_palette_label;
+	public static String highlight_scope_label;
+	public static String rendering_group_label;
+	public static String strip_cache_label;
+	public static String strip_cache_size_label1;
+	public static String strip_cache_size_label2;
+	public static String redraw_delay_label1;
+	public static String redraw_delay_label2;
+	public static String large_file_lines_label1;
+	public static String large_file_lines_label2;
+	public static String large_file_length_label1;
+	public static String large_file_length_label2;
 	public static String contenttype_group_label;
 
 	static {
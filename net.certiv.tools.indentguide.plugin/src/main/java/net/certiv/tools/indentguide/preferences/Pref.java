@@ -25,5 +25,37 @@ public class Pref {
 	public static final String DRAW_LEAD_EDGE = KEY + "draw_left_edge"; //$NON-NLS-1$
 	public static final String DRAW_BLANK_LINE = KEY + "draw_blank_line"; //$NON-NLS-1$
 	public static final String DRAW_COMMENT_BLOCK = KEY + "draw_comment_block"; //$NON-NLS-1$
+	public static final String DEPTH_COLORS = KEY + "depth_colors"; //$NON-NLS-1$
+	public static final String DEPTH_PALETTE = KEY + "depth_palette"; //$NON-NLS-1$
+	public static final String HIGHLIGHT_SCOPE = KEY + "highlight_scope"; //$NON-NLS-1$
 	public static final String CONTENT_TYPES = KEY + "content_types"; //$NON-NLS-1$
+	public static final String PROFILES = KEY + "profiles"; //$NON-NLS-1$
+
+	public static final String STRIP_CACHE = KEY + "strip_cache"; //$NON-NLS-1$
+	public static final String STRIP_CACHE_SIZE = KEY + "strip_cache_size"; //$NON-NLS-1$
+	public static final String REDRAW_DELAY = KEY + "redraw_delay"; //$NON-NLS-1$
+	public static final String LARGE_FILE_LINES = KEY + "large_file_lines"; //$NON-NLS-1$
+	public static final String LARGE_FILE_LINE_LENGTH = KEY + "large_file_line_length"; //$NON-NLS-1$
+
+	/** Keys overridable by a content type profile. */
+	public static final String[] PROFILE_KEYS = { //
+			LINE_ALPHA, LINE_STYLE, LINE_WIDTH, LINE_SHIFT, LINE_COLOR, LINE_COLOR + DARK, //
+			DRAW_LEAD_EDGE, DRAW_BLANK_LINE, DRAW_COMMENT_BLOCK, //
+			DEPTH_COLORS, DEPTH_PALETTE, DEPTH_PALETTE + DARK, HIGHLIGHT_SCOPE //
+	};
+
+	private static final String PROFILE_SEP = "@"; //$NON-NLS-1$
+
+	/**
+	 * Returns the key of the given setting in the profile of the given content type. Profile keys
+	 * have no default values: an unset key inherits the global setting. Profile values are stored
+	 * as strings, as a store removes any value equal to the type default of its key.
+	 *
+	 * @param typeId the content type identifier
+	 * @param key    the global key
+	 * @return the profile key
+	 */
+	public static String profileKey(String typeId, String key) {
+		return key + PROFILE_SEP + typeId;
+	}
 }
@@ -0,0 +1,95 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.preferences;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.content.IContentType;
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import net.certiv.tools.indentguide.Activator;
+import net.certiv.tools.indentguide.util.Utils;
+
+/**
+ * Registry of the compiled render settings of the global and content type profiles.
+ * <p>
+ * The settings of an editor are those of the profile of its content type or, if none, of the
+ * nearest base type having a profile, or else the global settings. Each profile is compiled
+ * once, on first use, and again only after {@link #invalidate}. Access only from the UI thread.
+ */
+public final class Profiles {
+
+	private static final Profiles INSTANCE = new Profiles();
+
+	// compiled settings by profile id; null key for global
+	private final Map<String, RenderConfig> configs = new HashMap<>();
+
+	// ids of the content types having a profile; null if invalidated
+	private Set<String> ids;
+	private boolean dark;
+
+	/** Returns the shared instance. */
+	public static Profiles getDefault() {
+		return INSTANCE;
+	}
+
+	private Profiles() {}
+
+	/**
+	 * Discards the compiled settings, to be recompiled on next use. Required on any change of the
+	 * profile preferences or of the platform theme.
+	 */
+	public void invalidate() {
+		configs.clear();
+		ids = null;
+	}
+
+	/** Returns the identifiers of the content types having a profile. */
+	public Set<String> ids() {
+		if (ids == null) {
+			IPreferenceStore store = Activator.getDefault().getPreferenceStore();
+			ids = Utils.undelimit(store.getString(Pref.PROFILES));
+			dark = Utils.isDarkTheme();
+		}
+		return ids;
+	}
+
+	/** Returns the global settings. */
+	public RenderConfig global() {
+		return config((String) null);
+	}
+
+	/**
+	 * Returns the settings for the given content type.
+	 *
+	 * @param type the content type, or {@code null} for the global settings
+	 * @return the settings
+	 */
+	public RenderConfig config(IContentType type) {
+		Set<String> profiled = ids();
+		for (IContentType t = type; t != null; t = t.getBaseType()) {
+			if (profiled.contains(t.getId())) return config(t.getId());
+		}
+		return global();
+	}
+
+	private RenderConfig config(String profile) {
+		ids();
+		RenderConfig config = configs.get(profile);
+		if (config == null) {
+			IPreferenceStore store = Activator.getDefault().getPreferenceStore();
+			config = RenderConfig.compile(store, profile, dark);
+			configs.put(profile, config);
+			Activator.debug("compiled %s", config);
+		}
+		return config;
+	}
+}
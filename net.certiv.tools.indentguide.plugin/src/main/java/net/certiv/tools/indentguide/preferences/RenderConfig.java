@@ -0,0 +1,117 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.preferences;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.ui.themes.ColorUtil;
+
+import net.certiv.tools.indentguide.util.Utils;
+
+/**
+ * Immutable guide rendering settings of one profile, compiled from the preference store. The
+ * settings of a content type profile inherit, key by key, from the global settings.
+ */
+public final class RenderConfig {
+
+	/** The profile identifier, being a content type identifier, or {@code null} if global. */
+	public final String profile;
+
+	public final int lineAlpha;
+	public final int lineStyle;
+	public final int lineWidth;
+	public final int lineShift;
+	public final RGB lineColor;
+
+	public final boolean drawLeadEdge;
+	public final boolean drawBlankLine;
+	public final boolean drawComment;
+
+	/** Draw each nesting depth in its own palette color, in place of the line color. */
+	public final boolean depthColors;
+	/** The depth palette; never empty. */
+	public final List<RGB> palette;
+
+	/** Highlight the guide of the block containing the caret. */
+	public final boolean highlightScope;
+
+	public final boolean stripCache;
+	public final int stripCacheSize;
+	/** Interval, in milliseconds, over which edit damage is collected before redrawing. */
+	public final int redrawDelay;
+
+	private RenderConfig(IPreferenceStore store, String profile, boolean dark) {
+		this.profile = profile;
+
+		lineAlpha = store.getInt(key(store, profile, Pref.LINE_ALPHA));
+		lineStyle = store.getInt(key(store, profile, Pref.LINE_STYLE));
+		lineWidth = store.getInt(key(store, profile, Pref.LINE_WIDTH));
+		lineShift = store.getInt(key(store, profile, Pref.LINE_SHIFT));
+		String color = dark ? Pref.LINE_COLOR + Pref.DARK : Pref.LINE_COLOR;
+		lineColor = ColorUtil.getColorValue(store.getString(key(store, profile, color)));
+
+		drawLeadEdge = store.getBoolean(key(store, profile, Pref.DRAW_LEAD_EDGE));
+		drawBlankLine = store.getBoolean(key(store, profile, Pref.DRAW_BLANK_LINE));
+		drawComment = store.getBoolean(key(store, profile, Pref.DRAW_COMMENT_BLOCK));
+
+		String pal = dark ? Pref.DEPTH_PALETTE + Pref.DARK : Pref.DEPTH_PALETTE;
+		palette = palette(store.getString(key(store, profile, pal)), lineColor);
+		depthColors = store.getBoolean(key(store, profile, Pref.DEPTH_COLORS));
+		highlightScope = store.getBoolean(key(store, profile, Pref.HIGHLIGHT_SCOPE));
+
+		stripCache = store.getBoolean(Pref.STRIP_CACHE);
+		stripCacheSize = store.getInt(Pref.STRIP_CACHE_SIZE);
+		redrawDelay = store.getInt(Pref.REDRAW_DELAY);
+	}
+
+	/**
+	 * Compiles the settings of the given profile.
+	 *
+	 * @param store   the preference store
+	 * @param profile the profile identifier, or {@code null} for the global settings
+	 * @param dark    {@code true} to select the dark theme line color
+	 * @return the compiled settings
+	 */
+	public static RenderConfig compile(IPreferenceStore store, String profile, boolean dark) {
+		return new RenderConfig(store, profile, dark);
+	}
+
+	/**
+	 * Parses the given delimited palette of colors.
+	 *
+	 * @param value the palette, as {@code r,g,b} terms delimited by {@code |}
+	 * @param def   the color to use if the palette is empty
+	 * @return the palette colors; never empty
+	 */
+	public static List<RGB> palette(String value, RGB def) {
+		List<RGB> colors = new ArrayList<>();
+		for (String term : value.split(Pattern.quote(Utils.DELIM))) {
+			if (!term.isBlank()) colors.add(ColorUtil.getColorValue(term.trim()));
+		}
+		if (colors.isEmpty()) colors.add(def);
+		return Collections.unmodifiableList(colors);
+	}
+
+	// returns the profile key, if set in the store, or else the global key
+	private static String key(IPreferenceStore store, String profile, String key) {
+		if (profile == null) return key;
+		String pkey = Pref.profileKey(profile, key);
+		return store.contains(pkey) ? pkey : key;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("RenderConfig [%s]", profile != null ? profile : "global"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,62 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.syntax;
+
+/**
+ * Recognises the lines of a C-style block comment. A line is a block comment line where,
+ * after optional horizontal whitespace, it:
+ * <ul>
+ * <li>opens a comment: {@code '/*'...}</li>
+ * <li>or, following a space, continues or closes a comment: {@code '*'}, {@code '* '...},
+ * {@code '*&#47;'...}, or {@code '*'...'*&#47;'}</li>
+ * </ul>
+ */
+public class BlockCommentScanner implements ICommentScanner {
+
+	public static final BlockCommentScanner INSTANCE = new BlockCommentScanner();
+
+	@Override
+	public boolean isComment(CharSequence txt, int from) {
+		int len = txt.length();
+		int pos = from;
+		while (pos < len && isHorizontalSpace(txt.charAt(pos))) {
+			pos++;
+		}
+		int rem = len - pos;
+		if (rem < 1) return false;
+
+		char c0 = txt.charAt(pos);
+		if (c0 == '/') return rem > 1 && txt.charAt(pos + 1) == '*';
+
+		// continuation and close forms require a preceding space
+		if (c0 != '*' || pos == from || txt.charAt(pos - 1) != ' ') return false;
+		if (rem == 1) return true;
+
+		char c1 = txt.charAt(pos + 1);
+		if (c1 == ' ' || c1 == '/') return true;
+		return rem > 2 && txt.charAt(len - 2) == '*' && txt.charAt(len - 1) == '/';
+	}
+
+	/** Returns {@code true} for the characters of the regex {@code \h} class. */
+	static boolean isHorizontalSpace(char ch) {
+		switch (ch) {
+			case ' ':
+			case '\t':
+			case 0x00A0:
+			case 0x1680:
+			case 0x180E:
+			case 0x202F:
+			case 0x205F:
+			case 0x3000:
+				return true;
+			default:
+				return ch >= 0x2000 && ch <= 0x200A;
+		}
+	}
+}
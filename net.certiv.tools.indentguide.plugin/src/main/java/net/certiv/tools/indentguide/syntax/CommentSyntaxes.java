@@ -0,0 +1,142 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.syntax;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.RegistryFactory;
+import org.eclipse.core.runtime.content.IContentType;
+
+import net.certiv.tools.indentguide.Activator;
+import net.certiv.tools.indentguide.util.Utils;
+
+/**
+ * Registry of the comment syntaxes contributed through the {@code commentSyntax} extension
+ * point, keyed by content type id and by file extension.
+ * <p>
+ * A syntax is resolved for the nearest bound content type in the base type hierarchy of the
+ * editor content type, then for the editor input file extension, then for the file extensions
+ * declared by the content type. Where none is bound, C-style block comments are recognised.
+ */
+public class CommentSyntaxes {
+
+	public static final String POINT = Activator.PLUGIN_ID + ".commentSyntax"; //$NON-NLS-1$
+
+	private static final String SYNTAX = "syntax"; //$NON-NLS-1$
+	private static final String CONTENT_TYPE = "contentType"; //$NON-NLS-1$
+	private static final String FILE_EXTENSIONS = "fileExtensions"; //$NON-NLS-1$
+	private static final String LINE_COMMENT = "lineComment"; //$NON-NLS-1$
+	private static final String BLOCK_COMMENT = "blockComment"; //$NON-NLS-1$
+	private static final String CLASS = "class"; //$NON-NLS-1$
+
+	private static CommentSyntaxes registry;
+
+	// key=content type id; value=scanner
+	private final Map<String, ICommentScanner> byType = new HashMap<>();
+	// key=file extension, lower case; value=scanner
+	private final Map<String, ICommentScanner> byExt = new HashMap<>();
+
+	/** Returns the shared registry, loading the contributed syntaxes on first use. */
+	public static synchronized CommentSyntaxes getDefault() {
+		if (registry == null) {
+			registry = new CommentSyntaxes();
+			registry.load();
+		}
+		return registry;
+	}
+
+	private void load() {
+		IExtensionRegistry reg = RegistryFactory.getRegistry();
+		if (reg == null) return;
+
+		for (IConfigurationElement elem : reg.getConfigurationElementsFor(POINT)) {
+			if (!SYNTAX.equals(elem.getName())) continue;
+			try {
+				ICommentScanner scanner = create(elem);
+				if (scanner == null) continue;
+
+				String type = elem.getAttribute(CONTENT_TYPE);
+				if (type != null && !type.isBlank()) {
+					byType.put(type.trim(), scanner);
+				}
+				String exts = elem.getAttribute(FILE_EXTENSIONS);
+				if (exts != null) {
+					StringTokenizer tokens = new StringTokenizer(exts, ","); //$NON-NLS-1$
+					while (tokens.hasMoreTokens()) {
+						String ext = tokens.nextToken().trim();
+						if (!ext.isEmpty()) byExt.put(ext.toLowerCase(Locale.ROOT), scanner);
+					}
+				}
+
+			} catch (CoreException | RuntimeException e) {
+				Activator.log(e);
+			}
+		}
+		Activator.debug("comment syntaxes: %s content types, %s file extensions", byType.size(), byExt.size());
+	}
+
+	private ICommentScanner create(IConfigurationElement elem) throws CoreException {
+		if (elem.getAttribute(CLASS) != null) {
+			return (ICommentScanner) elem.createExecutableExtension(CLASS);
+		}
+
+		String prefix = elem.getAttribute(LINE_COMMENT);
+		ICommentScanner line = prefix != null && !prefix.isBlank() ? new LineCommentScanner(prefix.trim()) : null;
+		ICommentScanner block = Boolean.parseBoolean(elem.getAttribute(BLOCK_COMMENT))
+				? BlockCommentScanner.INSTANCE
+				: null;
+
+		if (line != null && block != null) {
+			return (txt, from) -> line.isComment(txt, from) || block.isComment(txt, from);
+		}
+		if (line != null) return line;
+		if (block != null) return block;
+		return ICommentScanner.NONE;
+	}
+
+	/**
+	 * Returns the comment scanner for the given editor content type and input name.
+	 *
+	 * @param type the editor content type, or {@code null}
+	 * @param name the editor input name, or {@code null}
+	 * @return the comment scanner; never {@code null}
+	 */
+	public ICommentScanner scannerFor(IContentType type, String name) {
+		for (IContentType t = type; t != null; t = t.getBaseType()) {
+			ICommentScanner scanner = byType.get(t.getId());
+			if (scanner != null) return scanner;
+		}
+
+		if (name != null) {
+			int dot = name.lastIndexOf(Utils.DOT);
+			if (dot >= 0) {
+				ICommentScanner scanner = byExt.get(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+				if (scanner != null) return scanner;
+			}
+		}
+
+		if (type != null) {
+			String[] exts = type.getFileSpecs(IContentType.FILE_EXTENSION_SPEC);
+			if (exts != null) {
+				for (String ext : exts) {
+					ICommentScanner scanner = byExt.get(ext.toLowerCase(Locale.ROOT));
+					if (scanner != null) return scanner;
+				}
+			}
+		}
+
+		return BlockCommentScanner.INSTANCE;
+	}
+}
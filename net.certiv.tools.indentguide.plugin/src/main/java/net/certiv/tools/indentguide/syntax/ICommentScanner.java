@@ -0,0 +1,31 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.syntax;
+
+/**
+ * Recognises comment lines of a comment syntax. Implementations scan the given characters in
+ * place and must not allocate. Scanners are shared and may be called from background analysis
+ * threads; implementations must be stateless.
+ */
+public interface ICommentScanner {
+
+	/** Scanner that recognises no comments. */
+	ICommentScanner NONE = (txt, from) -> false;
+
+	/**
+	 * Returns {@code true} if the given line text, beginning at the given character position, is
+	 * a comment line to be treated as such by the painter.
+	 *
+	 * @param txt  the line text, excluding any line delimiter
+	 * @param from the character position to begin scanning; the position of the last tab stop
+	 *             of the line indentation
+	 * @return {@code true} if a comment line
+	 */
+	boolean isComment(CharSequence txt, int from);
+}
@@ -0,0 +1,48 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.syntax;
+
+/**
+ * Recognises line comments, being lines that begin, after optional horizontal whitespace,
+ * with a fixed comment prefix such as {@code '//'}.
+ */
+public class LineCommentScanner implements ICommentScanner {
+
+	private final String prefix;
+
+	/**
+	 * Creates a line comment scanner.
+	 *
+	 * @param prefix the line comment prefix
+	 */
+	public LineCommentScanner(String prefix) {
+		if (prefix == null || prefix.isEmpty()) throw new IllegalArgumentException("Empty comment prefix");
+		this.prefix = prefix;
+	}
+
+	@Override
+	public boolean isComment(CharSequence txt, int from) {
+		int len = txt.length();
+		int pos = from;
+		while (pos < len && BlockCommentScanner.isHorizontalSpace(txt.charAt(pos))) {
+			pos++;
+		}
+		if (len - pos < prefix.length()) return false;
+
+		for (int idx = 0; idx < prefix.length(); idx++) {
+			if (txt.charAt(pos + idx) != prefix.charAt(idx)) return false;
+		}
+		return true;
+	}
+
+	/** Returns the line comment prefix. */
+	public String prefix() {
+		return prefix;
+	}
+}
@@ -0,0 +1,202 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.content.IContentType;
+import org.eclipse.core.runtime.content.IContentTypeManager;
+import org.eclipse.core.runtime.content.IContentTypeManager.ContentTypeChangeEvent;
+import org.eclipse.core.runtime.content.IContentTypeManager.IContentTypeChangeListener;
+
+import net.certiv.tools.indentguide.adaptors.ContentTypeAdaptor;
+
+/**
+ * Registry of the platform text content types, indexed by type identifier, and of the content
+ * types excluded from guide painting.
+ * <p>
+ * The index is built on first use and rebuilt on the next use after a content type change is
+ * reported by the platform, or after a lookup finds a text type not yet indexed. The exclusion
+ * decision is memoised per content type; a type is excluded if it, or any of its base types, is
+ * explicitly excluded.
+ * <p>
+ * Thread-safe.
+ */
+public final class ContentTypes implements IContentTypeChangeListener {
+
+	private static final ContentTypes INSTANCE = new ContentTypes();
+
+	// text types by id; null if invalidated
+	private volatile Index index;
+
+	// explicitly excluded type ids, and the memoised decisions derived from them
+	private volatile Exclusions exclusions = new Exclusions(Collections.emptySet());
+
+	// placeholder for unknown/undefined content types; retained across rebuilds
+	private IContentType unknown;
+
+	private boolean installed;
+
+	private static class Index {
+
+		final Map<String, IContentType> byId;
+		final Set<IContentType> types;
+
+		Index(Map<String, IContentType> byId) {
+			this.byId = Collections.unmodifiableMap(byId);
+			this.types = Collections.unmodifiableSet(new LinkedHashSet<>(byId.values()));
+		}
+	}
+
+	private static class Exclusions {
+
+		final Set<String> ids;
+		final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+		Exclusions(Set<String> ids) {
+			this.ids = ids;
+		}
+	}
+
+	/** Returns the shared instance. */
+	public static ContentTypes getDefault() {
+		return INSTANCE;
+	}
+
+	private ContentTypes() {}
+
+	/** Starts tracking content type changes reported by the platform. */
+	public synchronized void install() {
+		if (installed) return;
+		Platform.getContentTypeManager().addContentTypeChangeListener(this);
+		installed = true;
+	}
+
+	/** Stops tracking content type changes reported by the platform. */
+	public synchronized void uninstall() {
+		if (!installed) return;
+		Platform.getContentTypeManager().removeContentTypeChangeListener(this);
+		installed = false;
+		invalidate();
+	}
+
+	@Override
+	public void contentTypeChanged(ContentTypeChangeEvent event) {
+		invalidate();
+	}
+
+	/** Discards the index, to be rebuilt on next use. */
+	public void invalidate() {
+		index = null;
+	}
+
+	/**
+	 * Returns the text content types known to the platform, including an 'UNKNOWN' placeholder
+	 * entry for unknown/undefined content types.
+	 *
+	 * @return the text content types, in platform order
+	 */
+	public Set<IContentType> types() {
+		return index().types;
+	}
+
+	/**
+	 * Returns the text content type having the given identifier.
+	 *
+	 * @param id the type identifier
+	 * @return the text content type, or {@code null} if not found
+	 */
+	public IContentType get(String id) {
+		if (id == null) return null;
+
+		IContentType type = index().byId.get(id);
+		if (type != null) return type;
+
+		// contributed since last indexed?
+		IContentTypeManager mgr = Platform.getContentTypeManager();
+		IContentType found = mgr.getContentType(id);
+		if (found != null && found.isKindOf(Utils.getPlatformTextType())) {
+			invalidate();
+			return index().byId.get(id);
+		}
+		return null;
+	}
+
+	/**
+	 * Sets the identifiers of the explicitly excluded content types.
+	 *
+	 * @param ids the excluded type identifiers
+	 */
+	public synchronized void setExcluded(Set<String> ids) {
+		exclusions = new Exclusions(Set.copyOf(ids));
+	}
+
+	/** Returns the identifiers of the explicitly excluded content types. */
+	public Set<String> excluded() {
+		return exclusions.ids;
+	}
+
+	/**
+	 * Returns {@code true} if the given content type is excluded, being explicitly excluded or a
+	 * kind of an explicitly excluded type.
+	 *
+	 * @param type the content type
+	 * @return {@code true} if excluded
+	 */
+	public boolean isExcluded(IContentType type) {
+		if (type == null) return true;
+
+		Exclusions ex = exclusions;
+		if (ex.ids.isEmpty()) return false;
+		return ex.decisions.computeIfAbsent(type.getId(), id -> excludes(ex.ids, type));
+	}
+
+	// walks the base type hierarchy
+	private static boolean excludes(Set<String> ids, IContentType type) {
+		for (IContentType t = type; t != null; t = t.getBaseType()) {
+			if (ids.contains(t.getId())) return true;
+		}
+		return false;
+	}
+
+	private Index index() {
+		Index idx = index;
+		return idx != null ? idx : build();
+	}
+
+	private synchronized Index build() {
+		if (index != null) return index;
+
+		IContentTypeManager mgr = Platform.getContentTypeManager();
+		IContentType txtType = Utils.getPlatformTextType();
+
+		Map<String, IContentType> idx = new LinkedHashMap<>();
+		for (IContentType type : mgr.getAllContentTypes()) {
+			if (type.isKindOf(txtType)) idx.put(type.getId(), type);
+		}
+
+		// add a limited placeholder entry for unknown/undefined content types
+		if (unknown == null) unknown = ContentTypeAdaptor.unknown(txtType);
+		idx.put(unknown.getId(), unknown);
+
+		// base type hierarchies may have changed
+		exclusions = new Exclusions(exclusions.ids);
+		Index res = new Index(idx);
+		index = res;
+
+		Log.getDefault().log(Log.Level.DEBUG, "content types indexed [%s]", idx.size()); //$NON-NLS-1$
+		return res;
+	}
+}
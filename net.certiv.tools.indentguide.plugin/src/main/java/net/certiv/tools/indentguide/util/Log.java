@@ -0,0 +1,243 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.util;
+
+import java.lang.StackWalker.StackFrame;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import net.certiv.tools.indentguide.Activator;
+
+/**
+ * Level gated plugin log. Messages below the current level are discarded before any
+ * formatting. The caller location is looked up, by stack walking, only at the {@code DEBUG}
+ * level.
+ * <p>
+ * Where a ring buffer is enabled, messages other than errors are held in the buffer, in place
+ * of being written to the platform log, and are retrieved on demand by {@link #dump}. Errors
+ * are always written to the platform log. Buffering takes no lock: entries are held unformatted
+ * and are only formatted when dumped.
+ * <p>
+ * The initial level and buffer size are given by the {@code net.certiv.tools.indentguide.log.level}
+ * ({@code off}, {@code error}, {@code info}, {@code debug}; default {@code info}) and
+ * {@code net.certiv.tools.indentguide.log.buffer} (number of entries; default {@code 0}) system
+ * properties. Both can be changed at runtime through the {@code LogMXBean}.
+ */
+public final class Log implements LogMXBean {
+
+	/** Log levels, in increasing verbosity. */
+	public enum Level {
+		OFF,
+		ERROR,
+		INFO,
+		DEBUG;
+	}
+
+	public static final String NAME = "net.certiv.tools.indentguide:type=Log"; //$NON-NLS-1$
+
+	private static final String LEVEL_PROP = Activator.PLUGIN_ID + ".log.level"; //$NON-NLS-1$
+	private static final String BUFFER_PROP = Activator.PLUGIN_ID + ".log.buffer"; //$NON-NLS-1$
+	private static final String PREFIX = "Indent Guide: "; //$NON-NLS-1$
+	private static final int MAX_BUFFER = 100000;
+
+	private static final StackWalker WALKER = StackWalker.getInstance();
+
+	private static final Log INSTANCE = new Log();
+
+	private volatile Level level = Level.INFO;
+	private volatile ILog sink;
+
+	// ring buffer of entries; null if disabled
+	private volatile Ring ring;
+
+	/** Returns the shared instance. */
+	public static Log getDefault() {
+		return INSTANCE;
+	}
+
+	private Log() {
+		String lvl = System.getProperty(LEVEL_PROP);
+		if (lvl != null) setLevel(lvl);
+		Integer buf = Integer.getInteger(BUFFER_PROP);
+		if (buf != null) setBufferSize(buf);
+	}
+
+	/**
+	 * Sets the platform log written to, or {@code null} to write nothing.
+	 *
+	 * @param sink the platform log
+	 */
+	public void setSink(ILog sink) {
+		this.sink = sink;
+	}
+
+	/** Returns {@code true} if messages of the given level are logged. */
+	public boolean isEnabled(Level lvl) {
+		return lvl != Level.OFF && lvl.compareTo(level) <= 0;
+	}
+
+	/** Logs the given exception at the {@code ERROR} level. */
+	public void error(Throwable e) {
+		if (!isEnabled(Level.ERROR)) return;
+
+		ILog log = sink;
+		if (log != null) log.log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getMessage(), e));
+		buffer(Level.ERROR, String.valueOf(e));
+	}
+
+	/**
+	 * Logs a formatted message at the given level. Not formatted if the level is not enabled.
+	 *
+	 * @param lvl  the message level
+	 * @param fmt  the format specification
+	 * @param args the format arguments
+	 */
+	public void log(Level lvl, String fmt, Object... args) {
+		if (!isEnabled(lvl)) return;
+		write(lvl, args.length == 0 ? fmt : String.format(fmt, args));
+	}
+
+	/**
+	 * Logs a supplied message at the given level. The supplier is not called if the level is not
+	 * enabled.
+	 *
+	 * @param lvl the message level
+	 * @param msg the message supplier
+	 */
+	public void log(Level lvl, Supplier<?> msg) {
+		if (!isEnabled(lvl)) return;
+		write(lvl, String.valueOf(msg.get()));
+	}
+
+	private void write(Level lvl, String msg) {
+		if (lvl == Level.DEBUG) msg = caller() + " \t" + msg; //$NON-NLS-1$
+
+		if (!buffer(lvl, msg)) {
+			ILog log = sink;
+			if (log != null) {
+				int severity = lvl == Level.ERROR ? IStatus.ERROR : IStatus.INFO;
+				log.log(new Status(severity, Activator.PLUGIN_ID, PREFIX + msg));
+			}
+		}
+	}
+
+	// returns the location of the first caller outside of the logging classes
+	private static String caller() {
+		Optional<StackFrame> frame = WALKER.walk(s -> s.filter(f -> !isLogging(f.getClassName())).findFirst());
+		if (frame.isEmpty()) return Utils.EMPTY;
+
+		String clsname = frame.get().getClassName();
+		if (clsname.startsWith(Activator.PLUGIN_ID)) {
+			clsname = clsname.substring(Activator.PLUGIN_ID.length() + 1);
+		}
+		return clsname + ":" + frame.get().getLineNumber(); //$NON-NLS-1$
+	}
+
+	private static boolean isLogging(String clsname) {
+		return clsname.equals(Log.class.getName()) || clsname.equals(Activator.class.getName());
+	}
+
+	// holds the given message in the ring buffer, if enabled; returns whether held in place of
+	// writing to the platform log
+	private boolean buffer(Level lvl, String msg) {
+		Ring r = ring;
+		if (r == null) return false;
+
+		r.add(System.currentTimeMillis(), lvl, msg);
+		return lvl != Level.ERROR;
+	}
+
+	@Override
+	public String getLevel() {
+		return level.name().toLowerCase(Locale.ROOT);
+	}
+
+	@Override
+	public void setLevel(String lvl) {
+		try {
+			level = Level.valueOf(lvl.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			// retain the current level
+		}
+	}
+
+	@Override
+	public int getBufferSize() {
+		Ring r = ring;
+		return r != null ? r.slots.length() : 0;
+	}
+
+	@Override
+	public void setBufferSize(int entries) {
+		entries = Math.min(entries, MAX_BUFFER);
+		ring = entries > 0 ? new Ring(entries) : null;
+	}
+
+	@Override
+	public String[] dump() {
+		Ring r = ring;
+		if (r == null) return new String[0];
+
+		ZoneId zone = ZoneId.systemDefault();
+		long end = r.next.get();
+		long beg = Math.max(0, end - r.slots.length());
+		String[] entries = new String[(int) (end - beg)];
+		int cnt = 0;
+		for (long seq = beg; seq < end; seq++) {
+			Entry e = r.slots.get((int) (seq % r.slots.length()));
+			if (e == null || e.seq != seq) continue; // not yet stored
+			LocalTime time = LocalTime.ofInstant(Instant.ofEpochMilli(e.time), zone);
+			entries[cnt++] = String.format("%s %-5s %s", time, e.lvl, e.msg); //$NON-NLS-1$
+		}
+		return cnt == entries.length ? entries : Arrays.copyOf(entries, cnt);
+	}
+
+	/** Fixed size ring of entries; slots are claimed by sequence number. */
+	private static final class Ring {
+
+		final AtomicReferenceArray<Entry> slots;
+		final AtomicLong next = new AtomicLong();
+
+		Ring(int size) {
+			slots = new AtomicReferenceArray<>(size);
+		}
+
+		void add(long time, Level lvl, String msg) {
+			long seq = next.getAndIncrement();
+			slots.set((int) (seq % slots.length()), new Entry(seq, time, lvl, msg));
+		}
+	}
+
+	/** Unformatted log entry. */
+	private static final class Entry {
+
+		final long seq;
+		final long time;
+		final Level lvl;
+		final String msg;
+
+		Entry(long seq, long time, Level lvl, String msg) {
+			this.seq = seq;
+			this.time = time;
+			this.lvl = lvl;
+			this.msg = msg;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+/******************************************************************************
+ * Copyright (c) 2006-2023 The IndentGuide Authors.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the MIT License.  A copy of the MIT License is included this
+ * distribution and is available at https://opensource.org/licenses/MIT.
+ *****************************************************************************/
+package net.certiv.tools.indentguide.util;
+
+/**
+ * Management interface of the plugin log, registered in the platform MBean server as
+ * {@value Log#NAME}.
+ */
+public interface LogMXBean {
+
+	/** Returns the log level: one of {@code off}, {@code error}, {@code info}, {@code debug}. */
+	String getLevel();
+
+	/** Sets the log level. Unrecognised levels are ignored. */
+	void setLevel(String level);
+
+	/** Returns the number of entries held by the ring buffer; {@code 0} if disabled. */
+	int getBufferSize();
+
+	/** Sets the number of entries held by the ring buffer, discarding any held entries. */
+	void setBufferSize(int entries);
+
+	/** Returns the entries held by the ring buffer, oldest first. */
+	String[] dump();
+}
@@ -9,7 +9,6 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.content.IContentType;
@@ -18,23 +17,16 @@ import org.eclipse.core.runtime.preferences.DefaultScope;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.jface.layout.PixelConverter;
-import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.preference.PreferenceConverter;
 import org.eclipse.jface.resource.StringConverter;
+import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.ITextViewerExtension5;
-import org.eclipse.swt.custom.StyledText;
-import org.eclipse.swt.graphics.Color;
-import org.eclipse.swt.graphics.GC;
+import org.eclipse.jface.text.Region;
 import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.widgets.Control;
-import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.texteditor.AbstractTextEditor;
-import org.eclipse.ui.themes.ColorUtil;
-
-import net.certiv.tools.indentguide.adaptors.ContentTypeAdaptor;
-import net.certiv.tools.indentguide.preferences.Pref;
 
 public class Utils {
 
@@ -60,12 +52,13 @@ public class Utils {
 	public static final Object[] NoArgs = new Object[0];
 
 	private static final String EditorsID = "org.eclipse.ui.editors"; //$NON-NLS-1$
+	private static final String TabWidthKey = "tabWidth"; //$NON-NLS-1$
+	private static final int TabWidthDefault = 4;
 	private static final IEclipsePreferences[] Scopes = new IEclipsePreferences[] {
 			InstanceScope.INSTANCE.getNode(EditorsID), //
 			DefaultScope.INSTANCE.getNode(EditorsID) //
 	};
 
-	private static Set<IContentType> platformTextTypes;
 	private static IContentType txtType;
 
 	private Utils() {}
@@ -192,6 +185,27 @@ public class Utils {
 		return widgetOffset;
 	}
 
+	/**
+	 * Convert a document range to the corresponding widget range.
+	 *
+	 * @param viewer the viewer containing the widget
+	 * @param offset the document offset
+	 * @param length the document range length
+	 * @return widget range, or {@code null} if not visible
+	 */
+	public static IRegion widgetRange(ITextViewer viewer, int offset, int length) {
+		if (viewer instanceof ITextViewerExtension5) {
+			ITextViewerExtension5 ext = (ITextViewerExtension5) viewer;
+			return ext.modelRange2WidgetRange(new Region(offset, length));
+		}
+
+		IRegion visible = viewer.getVisibleRegion();
+		int beg = Math.max(offset, visible.getOffset());
+		int end = Math.min(offset + length, visible.getOffset() + visible.getLength());
+		if (beg > end) return null;
+		return new Region(beg - visible.getOffset(), end - beg);
+	}
+
 	/**
 	 * Convert a widget offset to the corresponding document offset.
 	 *
@@ -209,6 +223,27 @@ public class Utils {
 		return offset + visible.getOffset();
 	}
 
+	/**
+	 * Convert a widget line to the corresponding document line.
+	 *
+	 * @param viewer the viewer containing the widget
+	 * @param line   the widget line number
+	 * @return document line, or {@code -1} if not determinable
+	 */
+	public static int docLine(ITextViewer viewer, int line) {
+		if (viewer instanceof ITextViewerExtension5) {
+			ITextViewerExtension5 ext = (ITextViewerExtension5) viewer;
+			return ext.widgetLine2ModelLine(line);
+		}
+
+		try {
+			IRegion visible = viewer.getVisibleRegion();
+			return line + viewer.getDocument().getLineOfOffset(visible.getOffset());
+		} catch (BadLocationException e) {
+			return -1;
+		}
+	}
+
 	/**
 	 * Check if the given widget line is a folded line.
 	 *
@@ -239,25 +274,14 @@ public class Utils {
 	}
 
 	/**
-	 * Returns the text content types known to the platform at plugin startup. Includes an 'UNKNOWN'
+	 * Returns the text content types currently known to the platform. Includes an 'UNKNOWN'
 	 * placeholder entry for unknown/undefined content types
 	 *
-	 * @return the known text content type identifiers
+	 * @return the known text content types
+	 * @see ContentTypes#types()
 	 */
 	public static Set<IContentType> platformTextTypes() {
-		if (platformTextTypes == null) {
-			IContentTypeManager mgr = Platform.getContentTypeManager();
-			IContentType txtType = getPlatformTextType();
-			platformTextTypes = Stream.of(mgr.getAllContentTypes()).filter(t -> t.isKindOf(txtType))
-					.collect(Collectors.toCollection(LinkedHashSet::new));
-
-			// add a limited placeholder entry for unknown/undefined content types
-			platformTextTypes.add(ContentTypeAdaptor.unknown(txtType));
-
-			// make immutable
-			platformTextTypes = Collections.unmodifiableSet(platformTextTypes);
-		}
-		return platformTextTypes;
+		return ContentTypes.getDefault().types();
 	}
 
 	/**
@@ -279,7 +303,7 @@ public class Utils {
 	 * @return the text content type for the given identifier, or {@code null} if not found
 	 */
 	public static IContentType getPlatformTextType(String id) {
-		return platformTextTypes().stream().filter(t -> t.getId().equals(id)).findFirst().orElse(null);
+		return ContentTypes.getDefault().get(id);
 	}
 
 	/**
@@ -289,7 +313,7 @@ public class Utils {
 	 */
 	public static Set<IContentType> getPlatformTextType(Set<String> ids) {
 		return ids.stream() //
-				.map(id -> getPlatformTextType(id)) //
+				.map(ContentTypes.getDefault()::get) //
 				.filter(Objects::nonNull) //
 				.collect(Collectors.toUnmodifiableSet());
 	}
@@ -413,30 +437,6 @@ public class Utils {
 		}
 	}
 
-	/**
-	 * Sets the widget to always use the operating system's advanced graphics subsystem for all
-	 * graphics operations.
-	 *
-	 * @param widget
-	 * @return
-	 */
-	public static boolean setAdvanced(StyledText widget) {
-		GC gc = new GC(widget);
-		gc.setAdvanced(true);
-		boolean adv = gc.getAdvanced();
-		gc.dispose();
-		return adv;
-	}
-
-	public static Color getColor(IPreferenceStore store) {
-		String key = Pref.LINE_COLOR;
-		if (isDarkTheme()) {
-			key += Pref.DARK;
-		}
-		String raw = store.getString(key);
-		return new Color(PlatformUI.getWorkbench().getDisplay(), ColorUtil.getColorValue(raw));
-	}
-
 	/**
 	 * Returns {@code true} if the current platform theme is 'dark'; empirically defined where the
 	 * editor foreground color is relatively darker than the background color.
@@ -449,6 +449,17 @@ public class Utils {
 		return (fg.red + fg.blue + fg.green) > (bg.red + bg.blue + bg.green);
 	}
 
+	/** Returns the text editor tab width preference, being the width of editors not yet shown. */
+	public static int editorTabWidth() {
+		String value = Platform.getPreferencesService().get(TabWidthKey, null, Scopes);
+		if (value == null) return TabWidthDefault;
+		try {
+			return Math.max(1, Integer.parseInt(value.trim()));
+		} catch (NumberFormatException e) {
+			return TabWidthDefault;
+		}
+	}
+
 	private static RGB getRawRGB(String key) {
 		String value = Platform.getPreferencesService().get(key, null, Scopes);
 		if (value == null) return PreferenceConverter.COLOR_DEFAULT_DEFAULT;